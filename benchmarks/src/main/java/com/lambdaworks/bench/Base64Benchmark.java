@@ -0,0 +1,45 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.bench;
+
+import com.lambdaworks.codec.Base64;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link Base64} encoding and decoding at salt, key, and bulk sizes.
+ *
+ * @author  agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base64Benchmark {
+    @Param({ "16", "32", "4096" })
+    public int length;
+
+    public byte[] bytes;
+    public char[] chars;
+
+    @Setup
+    public void setup() {
+        bytes = new byte[length];
+        new Random(0).nextBytes(bytes);
+        chars = Base64.encode(bytes);
+    }
+
+    @Benchmark
+    public char[] encode() {
+        return Base64.encode(bytes);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return Base64.decode(chars);
+    }
+}
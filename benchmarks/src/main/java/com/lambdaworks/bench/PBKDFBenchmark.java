@@ -0,0 +1,42 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.bench;
+
+import com.lambdaworks.crypto.PBKDF;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link PBKDF#pbkdf2} with HMAC-SHA256 over a range of iteration
+ * counts and derived key lengths.
+ *
+ * @author  agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PBKDFBenchmark {
+    @Param({ "1", "4096" })
+    public int c;
+
+    @Param({ "32", "1024" })
+    public int dkLen;
+
+    public byte[] passwd;
+    public byte[] salt;
+
+    @Setup
+    public void setup() throws Exception {
+        passwd = "password".getBytes("UTF-8");
+        salt   = "salt".getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public byte[] pbkdf2() throws Exception {
+        return PBKDF.pbkdf2("HmacSHA256", passwd, salt, c, dkLen);
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once for each thread count in the {@code threads} system property
+ * (default {@code 1,2,4,8}) with the GC profiler enabled, so the results include
+ * throughput, allocation rate, and latency percentiles. Any other arguments are passed
+ * through to JMH, for example a benchmark regex or {@code -p N=16384}.
+ *
+ * @author  agent
+ */
+public class Runner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        String threads = System.getProperty("threads", "1,2,4,8");
+
+        for (String t : threads.split(",")) {
+            Options opts = new OptionsBuilder()
+                    .parent(cmd)
+                    .threads(Integer.parseInt(t.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new org.openjdk.jmh.runner.Runner(opts).run();
+        }
+    }
+}
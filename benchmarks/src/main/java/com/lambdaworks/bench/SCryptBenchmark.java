@@ -0,0 +1,53 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.bench;
+
+import com.lambdaworks.crypto.SCrypt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the pure Java and native {@link SCrypt} implementations over a grid of
+ * N, r, and p. The native benchmark fails fast when the native library is not loaded.
+ *
+ * @author  agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SCryptBenchmark {
+    @Param({ "1024", "16384" })
+    public int N;
+
+    @Param({ "1", "8" })
+    public int r;
+
+    @Param({ "1", "2" })
+    public int p;
+
+    public byte[] passwd;
+    public byte[] salt;
+
+    @Setup
+    public void setup() throws Exception {
+        passwd = "password".getBytes("UTF-8");
+        salt   = "NaCl".getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public byte[] scryptJ() throws Exception {
+        return SCrypt.scryptJ(passwd, salt, N, r, p, 64);
+    }
+
+    @Benchmark
+    public byte[] scryptN() {
+        if (SCrypt.nativeKernel() == null) {
+            throw new IllegalStateException("native library not loaded");
+        }
+        return SCrypt.scryptN(passwd, salt, N, r, p, 64);
+    }
+}
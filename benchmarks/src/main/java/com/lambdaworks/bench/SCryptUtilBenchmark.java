@@ -0,0 +1,50 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.bench;
+
+import com.lambdaworks.crypto.SCryptUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of hashing and checking passwords with {@link SCryptUtil}, using the
+ * same code paths as a login service.
+ *
+ * @author  agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SCryptUtilBenchmark {
+    @Param({ "1024", "16384" })
+    public int N;
+
+    @Param({ "8" })
+    public int r;
+
+    @Param({ "1" })
+    public int p;
+
+    public String passwd;
+    public String hashed;
+
+    @Setup
+    public void setup() {
+        passwd = "secret";
+        hashed = SCryptUtil.scrypt(passwd, N, r, p);
+    }
+
+    @Benchmark
+    public String scrypt() {
+        return SCryptUtil.scrypt(passwd, N, r, p);
+    }
+
+    @Benchmark
+    public boolean check() {
+        return SCryptUtil.check(passwd, hashed);
+    }
+}
@@ -0,0 +1,183 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.ffm;
+
+import com.lambdaworks.crypto.SCrypt;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+
+import static java.lang.Integer.MAX_VALUE;
+import static java.lang.foreign.ValueLayout.*;
+
+/**
+ * Native <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt</a> context for a
+ * fixed set of cost parameters that calls the C implementation through the Foreign Function
+ * &amp; Memory API instead of JNI. The context allocates the password, salt, derived key, and
+ * V buffers off-heap in its own arena and reuses them for every call, so repeated hashing
+ * neither pins Java arrays nor allocates a new 128 * r * N byte V each time. The buffers
+ * are zeroed and freed by {@link #close}.
+ *
+ * The native library is loaded as usual by {@link SCrypt#preload}, and this backend is only
+ * available when that library loaded, passed its self-test, and the JVM is 64-bit. The JVM
+ * should be started with {@code --enable-native-access=ALL-UNNAMED}, or the name of the
+ * module containing this class, to allow the native calls without a warning.
+ *
+ * Instances are not thread-safe, but may be handed from one thread to another.
+ *
+ * @author  agent
+ */
+public class SCryptFFM implements AutoCloseable {
+    private static final MethodHandle scratch_size;
+    private static final MethodHandle scrypt_scratch;
+
+    static {
+        MethodHandle size = null, scrypt = null;
+
+        if (SCrypt.preload() && ADDRESS.byteSize() == 8) {
+            Linker linker = Linker.nativeLinker();
+            SymbolLookup lookup = SymbolLookup.loaderLookup();
+
+            MemorySegment sizeAddr   = lookup.find("crypto_scrypt_scratch_size").orElse(null);
+            MemorySegment scryptAddr = lookup.find("crypto_scrypt_scratch").orElse(null);
+
+            if (sizeAddr != null && scryptAddr != null) {
+                size = linker.downcallHandle(sizeAddr,
+                        FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_INT, JAVA_INT));
+                scrypt = linker.downcallHandle(scryptAddr,
+                        FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG, ADDRESS, JAVA_LONG,
+                                JAVA_LONG, JAVA_INT, JAVA_INT, ADDRESS, JAVA_LONG, ADDRESS, JAVA_LONG));
+            }
+        }
+
+        scratch_size   = size;
+        scrypt_scratch = scrypt;
+    }
+
+    public final int N;
+    public final int r;
+    public final int p;
+
+    private final Arena arena;
+    private final MemorySegment scratch;
+    private MemorySegment passwd;
+    private MemorySegment salt;
+    private MemorySegment DK;
+
+    /**
+     * Whether the native library was loaded and its functions can be called through the
+     * Foreign Function &amp; Memory API.
+     *
+     * @return true if the backend is available.
+     */
+    public static boolean isAvailable() {
+        return scrypt_scratch != null;
+    }
+
+    /**
+     * Allocate a new context for the supplied cost parameters.
+     *
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     *
+     * @throws IllegalStateException when the backend is not available, see {@link #isAvailable}.
+     */
+    public SCryptFFM(int N, int r, int p) {
+        if (!isAvailable()) throw new IllegalStateException("Native scrypt unavailable: " + SCrypt.backend());
+
+        if (N < 2 || (N & (N - 1)) != 0) throw new IllegalArgumentException("N must be a power of 2 greater than 1");
+        if (r < 1 || p < 1) throw new IllegalArgumentException("Parameters r and p must be greater than 0");
+
+        if (N > MAX_VALUE / 128 / r) throw new IllegalArgumentException("Parameter N is too large");
+        if (r > MAX_VALUE / 128 / p) throw new IllegalArgumentException("Parameter r is too large");
+
+        long size;
+        try {
+            size = (long) scratch_size.invokeExact((long) N, r, p);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+        if (size == 0) throw new IllegalArgumentException("Insufficient memory available");
+
+        this.N = N;
+        this.r = r;
+        this.p = p;
+
+        this.arena   = Arena.ofShared();
+        this.scratch = arena.allocate(size, 64);
+        this.passwd  = arena.allocate(64);
+        this.salt    = arena.allocate(64);
+        this.DK      = arena.allocate(64);
+    }
+
+    /**
+     * Derive a key from the supplied password and salt.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param dkLen     Intended length of the derived key.
+     *
+     * @return The derived key.
+     */
+    public byte[] scrypt(byte[] passwd, byte[] salt, int dkLen) {
+        if (dkLen < 0) throw new IllegalArgumentException("Negative key length");
+
+        byte[] DK = new byte[dkLen];
+        scrypt(passwd, salt, DK, dkLen);
+        return DK;
+    }
+
+    /**
+     * Derive a key from the supplied password and salt into DK.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param DK        Destination of the derived key.
+     * @param dkLen     Intended length of the derived key.
+     */
+    public void scrypt(byte[] passwd, byte[] salt, byte[] DK, int dkLen) {
+        if (dkLen < 0) throw new IllegalArgumentException("Negative key length");
+        if (dkLen > DK.length) throw new ArrayIndexOutOfBoundsException(dkLen);
+
+        MemorySegment P = this.passwd = reserve(this.passwd, passwd.length);
+        MemorySegment S = this.salt   = reserve(this.salt, salt.length);
+        MemorySegment D = this.DK     = reserve(this.DK, dkLen);
+
+        MemorySegment.copy(passwd, 0, P, JAVA_BYTE, 0, passwd.length);
+        MemorySegment.copy(salt, 0, S, JAVA_BYTE, 0, salt.length);
+
+        try {
+            int rc = (int) scrypt_scratch.invokeExact(P, (long) passwd.length, S, (long) salt.length,
+                    (long) N, r, p, D, (long) dkLen, scratch, scratch.byteSize());
+            if (rc != 0) throw new IllegalArgumentException("Insufficient memory available");
+            MemorySegment.copy(D, JAVA_BYTE, 0, DK, 0, dkLen);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        } finally {
+            P.asSlice(0, passwd.length).fill((byte) 0);
+            D.asSlice(0, dkLen).fill((byte) 0);
+        }
+    }
+
+    /**
+     * Zero and free the off-heap buffers. The context can't be used afterwards.
+     */
+    public void close() {
+        scratch.fill((byte) 0);
+        passwd.fill((byte) 0);
+        DK.fill((byte) 0);
+        arena.close();
+    }
+
+    private MemorySegment reserve(MemorySegment segment, long size) {
+        if (segment.byteSize() >= size) return segment;
+        return arena.allocate(Math.max(size, segment.byteSize() * 2));
+    }
+}
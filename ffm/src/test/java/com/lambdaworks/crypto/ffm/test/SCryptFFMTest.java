@@ -0,0 +1,90 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.ffm.test;
+
+import com.lambdaworks.crypto.SCrypt;
+import com.lambdaworks.crypto.ffm.SCryptFFM;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class SCryptFFMTest {
+    @Test
+    public void available() {
+        SCrypt.preload();
+        assertEquals(SCrypt.backend().isNative(), SCryptFFM.isAvailable());
+    }
+
+    @Test
+    public void scrypt_paper_appendix_b() throws Exception {
+        assumeTrue(SCryptFFM.isAvailable());
+
+        try (SCryptFFM ctx = new SCryptFFM(16, 1, 1)) {
+            byte[] DK = ctx.scrypt(new byte[0], new byte[0], 64);
+            assertArrayEquals(decode("77d6576238657b203b19ca42c18a0497f16b4844e3074ae8dfdffa3fede21442fcd0069ded0948f8326a753a0fc81f17e8d3e0fb2e0d3628cf35e20c38d18906"), DK);
+        }
+
+        try (SCryptFFM ctx = new SCryptFFM(1024, 8, 16)) {
+            byte[] DK = ctx.scrypt("password".getBytes("UTF-8"), "NaCl".getBytes("UTF-8"), 64);
+            assertArrayEquals(decode("fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b3731622eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640"), DK);
+        }
+    }
+
+    @Test
+    public void reuse() throws Exception {
+        assumeTrue(SCryptFFM.isAvailable());
+
+        try (SCryptFFM ctx = new SCryptFFM(1024, 8, 1)) {
+            for (int len : new int[] { 0, 1, 64, 65, 1000, 3 }) {
+                byte[] passwd = new byte[len];
+                byte[] salt = new byte[len + 1];
+                Arrays.fill(passwd, (byte) len);
+
+                byte[] expected = SCrypt.scryptJ(passwd, salt, 1024, 8, 1, len + 32);
+                assertArrayEquals(expected, ctx.scrypt(passwd, salt, len + 32));
+            }
+
+            byte[] DK = new byte[48];
+            ctx.scrypt(new byte[] { 1 }, new byte[] { 2 }, DK, 32);
+            assertArrayEquals(SCrypt.scryptJ(new byte[] { 1 }, new byte[] { 2 }, 1024, 8, 1, 32), Arrays.copyOf(DK, 32));
+        }
+    }
+
+    @Test
+    public void scrypt_invalid_N() {
+        assumeTrue(SCryptFFM.isAvailable());
+
+        try {
+            new SCryptFFM(1000, 8, 1);
+            fail("N must be a power of 2");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void closed() throws Exception {
+        assumeTrue(SCryptFFM.isAvailable());
+
+        SCryptFFM ctx = new SCryptFFM(16, 1, 1);
+        ctx.close();
+
+        try {
+            ctx.scrypt(new byte[0], new byte[0], 32);
+            fail("Context is closed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private static byte[] decode(String s) {
+        byte[] b = new byte[s.length() / 2];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+        }
+        return b;
+    }
+}
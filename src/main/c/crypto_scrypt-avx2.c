@@ -0,0 +1,280 @@
+/*-
+ * Copyright 2009 Colin Percival
+ * Copyright 2026 agent
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * The structure of this file follows the code written by Colin Percival as
+ * part of the Tarsnap online backup system.
+ */
+#include "scrypt_platform.h"
+
+#include "crypto_scrypt_smix.h"
+
+#ifdef HAVE_SMIX_X8
+
+#include <sys/types.h>
+
+#include <immintrin.h>
+#include <stdint.h>
+#include <string.h>
+
+#include "sysendian.h"
+
+#define AVX2 __attribute__((target("avx2")))
+
+static void blkcpy(__m256i *, const __m256i *, size_t);
+static void blkxor(__m256i *, const __m256i *, size_t);
+static void blkxor_gather(__m256i *, const __m256i *, __m256i, size_t);
+static void salsa20_8(__m256i[16]);
+static void blockmix_salsa8(__m256i *, __m256i *, __m256i *, size_t);
+
+/*
+ * The eight instances are interleaved by 32-bit word: vector k of a block
+ * holds word k of each instance, with instance l in element l.  V is laid out
+ * the same way, so V_i of every instance is written with plain vector stores
+ * and V_j is read with a gather since j differs between instances.
+ */
+
+AVX2 static void
+blkcpy(__m256i * D, const __m256i * S, size_t L)
+{
+	size_t i;
+
+	for (i = 0; i < L; i++)
+		_mm256_store_si256(&D[i], _mm256_load_si256(&S[i]));
+}
+
+AVX2 static void
+blkxor(__m256i * D, const __m256i * S, size_t L)
+{
+	size_t i;
+
+	for (i = 0; i < L; i++)
+		D[i] = _mm256_xor_si256(D[i], S[i]);
+}
+
+/**
+ * blkxor_gather(D, V, idx, L):
+ * XOR L vectors of V into D, where element l of vector k is read from
+ * word idx[l] + 8k of V.
+ */
+AVX2 static void
+blkxor_gather(__m256i * D, const __m256i * V, __m256i idx, size_t L)
+{
+	const int * base = (const int *)V;
+	size_t i;
+
+	for (i = 0; i < L; i++)
+		D[i] = _mm256_xor_si256(D[i],
+		    _mm256_i32gather_epi32(&base[i * 8], idx, 4));
+}
+
+/**
+ * salsa20_8(B):
+ * Apply the salsa20/8 core to the provided block of eight instances.
+ */
+AVX2 static void
+salsa20_8(__m256i B[16])
+{
+	__m256i x0 = B[0], x1 = B[1], x2 = B[2], x3 = B[3];
+	__m256i x4 = B[4], x5 = B[5], x6 = B[6], x7 = B[7];
+	__m256i x8 = B[8], x9 = B[9], x10 = B[10], x11 = B[11];
+	__m256i x12 = B[12], x13 = B[13], x14 = B[14], x15 = B[15];
+	__m256i T;
+	size_t i;
+
+	for (i = 0; i < 8; i += 2) {
+#define R(d, a, b, k) do {						\
+	T = _mm256_add_epi32(a, b);					\
+	d = _mm256_xor_si256(d, _mm256_slli_epi32(T, k));		\
+	d = _mm256_xor_si256(d, _mm256_srli_epi32(T, 32 - (k)));	\
+} while (0)
+		/* Operate on columns. */
+		R(x4, x0, x12, 7);	R(x8, x4, x0, 9);
+		R(x12, x8, x4, 13);	R(x0, x12, x8, 18);
+
+		R(x9, x5, x1, 7);	R(x13, x9, x5, 9);
+		R(x1, x13, x9, 13);	R(x5, x1, x13, 18);
+
+		R(x14, x10, x6, 7);	R(x2, x14, x10, 9);
+		R(x6, x2, x14, 13);	R(x10, x6, x2, 18);
+
+		R(x3, x15, x11, 7);	R(x7, x3, x15, 9);
+		R(x11, x7, x3, 13);	R(x15, x11, x7, 18);
+
+		/* Operate on rows. */
+		R(x1, x0, x3, 7);	R(x2, x1, x0, 9);
+		R(x3, x2, x1, 13);	R(x0, x3, x2, 18);
+
+		R(x6, x5, x4, 7);	R(x7, x6, x5, 9);
+		R(x4, x7, x6, 13);	R(x5, x4, x7, 18);
+
+		R(x11, x10, x9, 7);	R(x8, x11, x10, 9);
+		R(x9, x8, x11, 13);	R(x10, x9, x8, 18);
+
+		R(x12, x15, x14, 7);	R(x13, x12, x15, 9);
+		R(x14, x13, x12, 13);	R(x15, x14, x13, 18);
+#undef R
+	}
+
+	B[0] = _mm256_add_epi32(B[0], x0);
+	B[1] = _mm256_add_epi32(B[1], x1);
+	B[2] = _mm256_add_epi32(B[2], x2);
+	B[3] = _mm256_add_epi32(B[3], x3);
+	B[4] = _mm256_add_epi32(B[4], x4);
+	B[5] = _mm256_add_epi32(B[5], x5);
+	B[6] = _mm256_add_epi32(B[6], x6);
+	B[7] = _mm256_add_epi32(B[7], x7);
+	B[8] = _mm256_add_epi32(B[8], x8);
+	B[9] = _mm256_add_epi32(B[9], x9);
+	B[10] = _mm256_add_epi32(B[10], x10);
+	B[11] = _mm256_add_epi32(B[11], x11);
+	B[12] = _mm256_add_epi32(B[12], x12);
+	B[13] = _mm256_add_epi32(B[13], x13);
+	B[14] = _mm256_add_epi32(B[14], x14);
+	B[15] = _mm256_add_epi32(B[15], x15);
+}
+
+/**
+ * blockmix_salsa8(Bin, Bout, X, r):
+ * Compute Bout = BlockMix_{salsa20/8, r}(Bin) for eight instances.  The
+ * input Bin must be 32r vectors in length; the output Bout must also be the
+ * same size.  The temporary space X must be 16 vectors.
+ */
+AVX2 static void
+blockmix_salsa8(__m256i * Bin, __m256i * Bout, __m256i * X, size_t r)
+{
+	size_t i;
+
+	/* 1: X <-- B_{2r - 1} */
+	blkcpy(X, &Bin[(2 * r - 1) * 16], 16);
+
+	/* 2: for i = 0 to 2r - 1 do */
+	for (i = 0; i < 2 * r; i += 2) {
+		/* 3: X <-- H(X \xor B_i) */
+		blkxor(X, &Bin[i * 16], 16);
+		salsa20_8(X);
+
+		/* 4: Y_i <-- X */
+		/* 6: B' <-- (Y_0, Y_2 ... Y_{2r-2}, Y_1, Y_3 ... Y_{2r-1}) */
+		blkcpy(&Bout[i * 8], X, 16);
+
+		/* 3: X <-- H(X \xor B_i) */
+		blkxor(X, &Bin[i * 16 + 16], 16);
+		salsa20_8(X);
+
+		/* 4: Y_i <-- X */
+		/* 6: B' <-- (Y_0, Y_2 ... Y_{2r-2}, Y_1, Y_3 ... Y_{2r-1}) */
+		blkcpy(&Bout[i * 8 + r * 16], X, 16);
+	}
+}
+
+/**
+ * crypto_scrypt_smix_x8_usable(N, r):
+ * Return non-zero if the CPU supports AVX2 and crypto_scrypt_smix_x8 can
+ * address V for the parameters N and r.
+ */
+int
+crypto_scrypt_smix_x8_usable(uint64_t N, size_t r)
+{
+
+	__builtin_cpu_init();
+	return (__builtin_cpu_supports("avx2") &&
+	    (N <= (uint64_t)(INT32_MAX) / 256 / r));
+}
+
+/**
+ * crypto_scrypt_smix_x8(B, r, N, V, XY):
+ * Compute B[l] = SMix_r(B[l], N) for eight independent instances l at once
+ * using AVX2.  Each input B[l] must be 128r bytes in length; the temporary
+ * storage V must be 8 * 128rN bytes in length; the temporary storage XY
+ * must be 8 * (256r + 64) bytes in length.  The value N must be a power of
+ * 2 greater than 1.  The arrays V and XY must be aligned to a multiple of 64
+ * bytes.  This function must only be called when
+ * crypto_scrypt_smix_x8_usable(N, r) returns non-zero.
+ */
+AVX2 void
+crypto_scrypt_smix_x8(uint8_t * B[8], size_t r, uint64_t N, void * V,
+    void * XY)
+{
+	__m256i * X = XY;
+	__m256i * Y = &X[32 * r];
+	__m256i * Z = &X[64 * r];
+	__m256i * V8 = V;
+	uint32_t * X32 = XY;
+	__m256i mask = _mm256_set1_epi32((int)(N - 1));
+	__m256i stride = _mm256_set1_epi32((int)(256 * r));
+	__m256i lane = _mm256_setr_epi32(0, 1, 2, 3, 4, 5, 6, 7);
+	__m256i j;
+	uint64_t i;
+	size_t k, l;
+
+	/* 1: X <-- B */
+	for (k = 0; k < 32 * r; k++) {
+		for (l = 0; l < 8; l++)
+			X32[k * 8 + l] = le32dec(&B[l][4 * k]);
+	}
+
+	/* 2: for i = 0 to N - 1 do */
+	for (i = 0; i < N; i += 2) {
+		/* 3: V_i <-- X */
+		blkcpy(&V8[i * (32 * r)], X, 32 * r);
+
+		/* 4: X <-- H(X) */
+		blockmix_salsa8(X, Y, Z, r);
+
+		/* 3: V_i <-- X */
+		blkcpy(&V8[(i + 1) * (32 * r)], Y, 32 * r);
+
+		/* 4: X <-- H(X) */
+		blockmix_salsa8(Y, X, Z, r);
+	}
+
+	/* 6: for i = 0 to N - 1 do */
+	for (i = 0; i < N; i += 2) {
+		/* 7: j <-- Integerify(X) mod N */
+		j = _mm256_and_si256(X[(2 * r - 1) * 16], mask);
+		j = _mm256_add_epi32(_mm256_mullo_epi32(j, stride), lane);
+
+		/* 8: X <-- H(X \xor V_j) */
+		blkxor_gather(X, V8, j, 32 * r);
+		blockmix_salsa8(X, Y, Z, r);
+
+		/* 7: j <-- Integerify(X) mod N */
+		j = _mm256_and_si256(Y[(2 * r - 1) * 16], mask);
+		j = _mm256_add_epi32(_mm256_mullo_epi32(j, stride), lane);
+
+		/* 8: X <-- H(X \xor V_j) */
+		blkxor_gather(Y, V8, j, 32 * r);
+		blockmix_salsa8(Y, X, Z, r);
+	}
+
+	/* 10: B' <-- X */
+	for (k = 0; k < 32 * r; k++) {
+		for (l = 0; l < 8; l++)
+			le32enc(&B[l][4 * k], X32[k * 8 + l]);
+	}
+}
+
+#endif /* HAVE_SMIX_X8 */
@@ -0,0 +1,445 @@
+/*-
+ * Copyright 2009 Colin Percival
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ * This file was originally written by Colin Percival as part of the Tarsnap
+ * online backup system.
+ */
+#ifndef _GNU_SOURCE
+#define _GNU_SOURCE
+#endif
+
+#include "scrypt_platform.h"
+
+#include <sys/types.h>
+
+#include <errno.h>
+#include <pthread.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <string.h>
+
+#include "sha256.h"
+
+#include "crypto_scrypt_arena.h"
+#include "crypto_scrypt_smix.h"
+#include "crypto_scrypt.h"
+
+/* State of one thread computing a subset of the p lanes. */
+struct smix_worker {
+	uint8_t * B;
+	size_t r;
+	uint64_t N;
+	uint32_t first;
+	uint32_t stride;
+	uint32_t p;
+	void * V0;
+	void * V;
+	void * XY0;
+	void * XY;
+	pthread_t thread;
+	int started;
+};
+
+#ifdef HAVE_SMIX_SSE2
+void (*crypto_scrypt_smix)(uint8_t *, size_t, uint64_t, void *, void *) =
+    crypto_scrypt_smix_sse2;
+static const char * smix_name = "sse2";
+#elif defined(HAVE_SMIX_NEON)
+void (*crypto_scrypt_smix)(uint8_t *, size_t, uint64_t, void *, void *) =
+    crypto_scrypt_smix_neon;
+static const char * smix_name = "neon";
+#else
+void (*crypto_scrypt_smix)(uint8_t *, size_t, uint64_t, void *, void *) =
+    crypto_scrypt_smix_scalar;
+static const char * smix_name = "scalar";
+#endif
+
+static int check_params(uint64_t, uint32_t, uint32_t, size_t);
+static void * alloc_aligned(void **, size_t);
+static void * smix_worker(void *);
+
+/**
+ * crypto_scrypt_select_kernel(void):
+ * Point crypto_scrypt_smix at the fastest kernel the CPU supports, and
+ * return the name of that kernel.
+ */
+const char *
+crypto_scrypt_select_kernel(void)
+{
+
+#if defined(HAVE_SMIX_SSE2) && defined(__GNUC__)
+	__builtin_cpu_init();
+	if (__builtin_cpu_supports("sse2")) {
+		crypto_scrypt_smix = crypto_scrypt_smix_sse2;
+		smix_name = "sse2";
+	} else {
+		crypto_scrypt_smix = crypto_scrypt_smix_scalar;
+		smix_name = "scalar";
+	}
+#endif
+
+	return (smix_name);
+}
+
+/**
+ * check_params(N, r, p, buflen):
+ * Check that the scrypt parameters are valid and that the memory they
+ * require can be addressed.  Return 0 if so; or -1 with errno set if not.
+ */
+static int
+check_params(uint64_t N, uint32_t r, uint32_t p, size_t buflen)
+{
+
+#if SIZE_MAX > UINT32_MAX
+	if (buflen > (((uint64_t)(1) << 32) - 1) * 32) {
+		errno = EFBIG;
+		return (-1);
+	}
+#endif
+	if ((uint64_t)(r) * (uint64_t)(p) >= (1 << 30)) {
+		errno = EFBIG;
+		return (-1);
+	}
+	if (((N & (N - 1)) != 0) || (N < 2)) {
+		errno = EINVAL;
+		return (-1);
+	}
+	if ((r > SIZE_MAX / 128 / p) ||
+#if SIZE_MAX / 256 <= UINT32_MAX
+	    (r > (SIZE_MAX - 64) / 256) ||
+#endif
+	    (N > SIZE_MAX / 128 / r)) {
+		errno = ENOMEM;
+		return (-1);
+	}
+
+	return (0);
+}
+
+/**
+ * alloc_aligned(base, len):
+ * Allocate len bytes aligned to a multiple of 64 bytes and return a pointer
+ * to them, or NULL on error.  The pointer to pass to free is stored in base.
+ */
+static void *
+alloc_aligned(void ** base, size_t len)
+{
+#ifdef HAVE_POSIX_MEMALIGN
+	if ((errno = posix_memalign(base, 64, len)) != 0)
+		return (NULL);
+	return (*base);
+#else
+	if ((*base = malloc(len + 63)) == NULL)
+		return (NULL);
+	return ((void *)(((uintptr_t)(*base) + 63) & ~ (uintptr_t)(63)));
+#endif
+}
+
+/**
+ * smix_worker(cookie):
+ * Compute B_i <-- MF(B_i, N) for each lane i assigned to the worker.
+ */
+static void *
+smix_worker(void * cookie)
+{
+	struct smix_worker * w = cookie;
+	uint32_t i;
+
+	for (i = w->first; i < w->p; i += w->stride)
+		crypto_scrypt_smix(&w->B[i * 128 * w->r], w->r, w->N, w->V, w->XY);
+
+	return (NULL);
+}
+
+/**
+ * crypto_scrypt(passwd, passwdlen, salt, saltlen, N, r, p, buf, buflen):
+ * Compute scrypt(passwd[0 .. passwdlen - 1], salt[0 .. saltlen - 1], N, r,
+ * p, buflen) and write the result into buf.  The parameters r, p, and buflen
+ * must satisfy r * p < 2^30 and buflen <= (2^32 - 1) * 32.  The parameter N
+ * must be a power of 2 greater than 1.
+ *
+ * Return 0 on success; or -1 on error.
+ */
+int
+crypto_scrypt(const uint8_t * passwd, size_t passwdlen,
+    const uint8_t * salt, size_t saltlen, uint64_t N, uint32_t r, uint32_t p,
+    uint8_t * buf, size_t buflen)
+{
+
+	return (crypto_scrypt_threads(passwd, passwdlen, salt, saltlen, N, r,
+	    p, buf, buflen, 1));
+}
+
+/**
+ * crypto_scrypt_threads(passwd, passwdlen, salt, saltlen, N, r, p, buf,
+ *     buflen, nthreads):
+ * Compute scrypt(passwd[0 .. passwdlen - 1], salt[0 .. saltlen - 1], N, r,
+ * p, buflen) as crypto_scrypt does, spreading the p lanes across at most
+ * nthreads threads.  Each thread has its own 128rN bytes of storage for V.
+ * Lanes which cannot be given a thread are computed by the caller.
+ *
+ * Return 0 on success; or -1 on error.
+ */
+int
+crypto_scrypt_threads(const uint8_t * passwd, size_t passwdlen,
+    const uint8_t * salt, size_t saltlen, uint64_t N, uint32_t r, uint32_t p,
+    uint8_t * buf, size_t buflen, uint32_t nthreads)
+{
+	struct smix_worker * W;
+	void * B0;
+	uint8_t * B;
+	uint32_t n, t;
+	int rc = -1;
+
+	/* Sanity-check parameters. */
+	if (check_params(N, r, p, buflen))
+		goto err0;
+	if (nthreads < 1)
+		nthreads = 1;
+	if (nthreads > p)
+		nthreads = p;
+
+	/* Allocate memory. */
+	if ((B = alloc_aligned(&B0, 128 * r * p)) == NULL)
+		goto err0;
+	if ((W = calloc(nthreads, sizeof(struct smix_worker))) == NULL)
+		goto err1;
+	for (n = 0; n < nthreads; n++) {
+		W[n].B = B;
+		W[n].r = r;
+		W[n].N = N;
+		W[n].first = n;
+		W[n].stride = nthreads;
+		W[n].p = p;
+		if ((W[n].XY = alloc_aligned(&W[n].XY0, 256 * r + 64)) == NULL)
+			goto err2;
+		if ((W[n].V = crypto_scrypt_arena_alloc(&W[n].V0, 128 * r * N)) == NULL) {
+			free(W[n].XY0);
+			goto err2;
+		}
+	}
+
+	/* 1: (B_0 ... B_{p-1}) <-- PBKDF2(P, S, 1, p * MFLen) */
+	PBKDF2_SHA256(passwd, passwdlen, salt, saltlen, 1, B, p * 128 * r);
+
+	/* 2: for i = 0 to p - 1 do */
+	/* 3: B_i <-- MF(B_i, N) */
+	for (t = 1; t < nthreads; t++)
+		W[t].started = (pthread_create(&W[t].thread, NULL,
+		    smix_worker, &W[t]) == 0);
+	smix_worker(&W[0]);
+	for (t = 1; t < nthreads; t++) {
+		if (W[t].started)
+			pthread_join(W[t].thread, NULL);
+		else
+			smix_worker(&W[t]);
+	}
+
+	/* 5: DK <-- PBKDF2(P, B, 1, dkLen) */
+	PBKDF2_SHA256(passwd, passwdlen, B, p * 128 * r, 1, buf, buflen);
+
+	/* Success! */
+	rc = 0;
+
+err2:
+	/* Free memory. */
+	for (t = 0; t < n; t++) {
+		if (crypto_scrypt_arena_free(W[t].V0, 128 * r * N))
+			rc = -1;
+		free(W[t].XY0);
+	}
+	free(W);
+err1:
+	free(B0);
+err0:
+	return (rc);
+}
+
+/**
+ * crypto_scrypt_scratch_size(N, r, p):
+ * Return the number of bytes of scratch space crypto_scrypt_scratch needs
+ * for the parameters N, r, and p; or 0 with errno set if the parameters are
+ * invalid.
+ */
+size_t
+crypto_scrypt_scratch_size(uint64_t N, uint32_t r, uint32_t p)
+{
+
+	if (check_params(N, r, p, 0))
+		return (0);
+	if ((N > (SIZE_MAX - 256 * r - 64 - 128 * r * p) / 128 / r)) {
+		errno = ENOMEM;
+		return (0);
+	}
+
+	return (128 * r * p + 256 * r + 64 + 128 * r * N);
+}
+
+/**
+ * crypto_scrypt_scratch(passwd, passwdlen, salt, saltlen, N, r, p, buf,
+ *     buflen, scratch, scratchlen):
+ * Compute scrypt(passwd[0 .. passwdlen - 1], salt[0 .. saltlen - 1], N, r,
+ * p, buflen) as crypto_scrypt does, using the caller supplied scratch space
+ * instead of allocating memory.  The scratch space must be aligned to a
+ * multiple of 64 bytes and be at least crypto_scrypt_scratch_size(N, r, p)
+ * bytes in length.
+ *
+ * Return 0 on success; or -1 on error.
+ */
+int
+crypto_scrypt_scratch(const uint8_t * passwd, size_t passwdlen,
+    const uint8_t * salt, size_t saltlen, uint64_t N, uint32_t r, uint32_t p,
+    uint8_t * buf, size_t buflen, void * scratch, size_t scratchlen)
+{
+	uint8_t * B = scratch;
+	uint8_t * XY = &B[128 * r * p];
+	uint8_t * V = &XY[256 * r + 64];
+	uint32_t i;
+
+	/* Sanity-check parameters. */
+	if (check_params(N, r, p, buflen))
+		return (-1);
+	if (scratchlen < crypto_scrypt_scratch_size(N, r, p) ||
+	    ((uintptr_t)(scratch) & 63) != 0) {
+		errno = EINVAL;
+		return (-1);
+	}
+
+	/* 1: (B_0 ... B_{p-1}) <-- PBKDF2(P, S, 1, p * MFLen) */
+	PBKDF2_SHA256(passwd, passwdlen, salt, saltlen, 1, B, p * 128 * r);
+
+	/* 2: for i = 0 to p - 1 do */
+	for (i = 0; i < p; i++) {
+		/* 3: B_i <-- MF(B_i, N) */
+		crypto_scrypt_smix(&B[i * 128 * r], r, N, V, XY);
+	}
+
+	/* 5: DK <-- PBKDF2(P, B, 1, dkLen) */
+	PBKDF2_SHA256(passwd, passwdlen, B, p * 128 * r, 1, buf, buflen);
+
+	/* Success! */
+	return (0);
+}
+
+/**
+ * crypto_scrypt_batch(passwd, passwdlen, salt, saltlen, count, N, r, p, buf,
+ *     buflen):
+ * Compute scrypt(passwd[k][0 .. passwdlen[k] - 1], salt[k][0 .. saltlen[k]
+ * - 1], N, r, p, buflen) for each k < count and write the result for k into
+ * buf[k * buflen .. (k + 1) * buflen - 1].  Memory is allocated once for the
+ * whole batch, and when the CPU supports it groups of eight instances are
+ * computed at once by crypto_scrypt_smix_x8.
+ *
+ * Return 0 on success; or -1 on error.
+ */
+int
+crypto_scrypt_batch(const uint8_t * const * passwd, const size_t * passwdlen,
+    const uint8_t * const * salt, const size_t * saltlen, size_t count,
+    uint64_t N, uint32_t r, uint32_t p, uint8_t * buf, size_t buflen)
+{
+	void * B0, * V0, * XY0;
+	uint8_t * B;
+	void * V;
+	void * XY;
+	size_t lanes = 1;
+	size_t k;
+	uint32_t i;
+	int rc = -1;
+
+	/* Sanity-check parameters. */
+	if (check_params(N, r, p, buflen))
+		goto err0;
+#ifdef HAVE_SMIX_X8
+	if (count >= 8 && crypto_scrypt_smix_x8_usable(N, r) &&
+	    (r <= SIZE_MAX / 128 / p / 8) && (N <= SIZE_MAX / 128 / r / 8))
+		lanes = 8;
+#endif
+
+	/* Allocate memory. */
+	if ((B = alloc_aligned(&B0, lanes * 128 * r * p)) == NULL)
+		goto err0;
+	if ((XY = alloc_aligned(&XY0, lanes * (256 * r + 64))) == NULL)
+		goto err1;
+	if ((V = crypto_scrypt_arena_alloc(&V0, lanes * 128 * r * N)) == NULL)
+		goto err2;
+
+#ifdef HAVE_SMIX_X8
+	for (k = 0; lanes == 8 && k + 8 <= count; k += 8) {
+		uint8_t * Bl[8];
+		size_t l;
+
+		/* 1: (B_0 ... B_{p-1}) <-- PBKDF2(P, S, 1, p * MFLen) */
+		for (l = 0; l < 8; l++)
+			PBKDF2_SHA256(passwd[k + l], passwdlen[k + l],
+			    salt[k + l], saltlen[k + l], 1,
+			    &B[l * 128 * r * p], p * 128 * r);
+
+		/* 2: for i = 0 to p - 1 do */
+		for (i = 0; i < p; i++) {
+			/* 3: B_i <-- MF(B_i, N) */
+			for (l = 0; l < 8; l++)
+				Bl[l] = &B[l * 128 * r * p + i * 128 * r];
+			crypto_scrypt_smix_x8(Bl, r, N, V, XY);
+		}
+
+		/* 5: DK <-- PBKDF2(P, B, 1, dkLen) */
+		for (l = 0; l < 8; l++)
+			PBKDF2_SHA256(passwd[k + l], passwdlen[k + l],
+			    &B[l * 128 * r * p], p * 128 * r, 1,
+			    &buf[(k + l) * buflen], buflen);
+	}
+#else
+	k = 0;
+#endif
+
+	for (; k < count; k++) {
+		/* 1: (B_0 ... B_{p-1}) <-- PBKDF2(P, S, 1, p * MFLen) */
+		PBKDF2_SHA256(passwd[k], passwdlen[k], salt[k], saltlen[k], 1,
+		    B, p * 128 * r);
+
+		/* 2: for i = 0 to p - 1 do */
+		for (i = 0; i < p; i++) {
+			/* 3: B_i <-- MF(B_i, N) */
+			crypto_scrypt_smix(&B[i * 128 * r], r, N, V, XY);
+		}
+
+		/* 5: DK <-- PBKDF2(P, B, 1, dkLen) */
+		PBKDF2_SHA256(passwd[k], passwdlen[k], B, p * 128 * r, 1,
+		    &buf[k * buflen], buflen);
+	}
+
+	/* Success! */
+	rc = 0;
+
+	/* Free memory. */
+	if (crypto_scrypt_arena_free(V0, lanes * 128 * r * N))
+		rc = -1;
+err2:
+	free(XY0);
+err1:
+	free(B0);
+err0:
+	return (rc);
+}
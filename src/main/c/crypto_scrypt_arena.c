@@ -0,0 +1,311 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+#ifndef _GNU_SOURCE
+#define _GNU_SOURCE
+#endif
+
+#include "scrypt_platform.h"
+
+#include <sys/types.h>
+#include <sys/mman.h>
+
+#include <errno.h>
+#include <pthread.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <string.h>
+#include <unistd.h>
+
+#if defined(__linux__)
+#include <sys/syscall.h>
+#endif
+
+#include "crypto_scrypt_arena.h"
+
+/* Size of a transparent or explicit huge page. */
+#define HUGE_PAGE_SIZE ((size_t)(2) * 1024 * 1024)
+
+/* An arena cached by a thread between calls. */
+struct arena {
+	void * base;
+	void * V;
+	size_t len;
+	int node;
+};
+
+static pthread_key_t arena_key;
+static pthread_once_t arena_once = PTHREAD_ONCE_INIT;
+static int arena_key_ok;
+
+/* Bytes cached by all threads, and the limit on them. */
+static pthread_mutex_t arena_lock = PTHREAD_MUTEX_INITIALIZER;
+static size_t arena_cached;
+static size_t arena_limit = SCRYPT_ARENA_CACHE_LIMIT;
+
+static size_t arena_size(size_t);
+static int current_node(void);
+static void * map_arena(void **, size_t);
+static int unmap_arena(void *, size_t);
+static int reserve(size_t);
+static void unreserve(size_t);
+static void destroy_arena(void *);
+static void create_key(void);
+
+/**
+ * arena_size(len):
+ * Return the number of bytes actually mapped for an arena of len bytes.
+ * Arenas of at least one huge page are rounded up to a whole number of huge
+ * pages so they can be backed by them.
+ */
+static size_t
+arena_size(size_t len)
+{
+
+	if (len < HUGE_PAGE_SIZE || len > SIZE_MAX - HUGE_PAGE_SIZE)
+		return (len);
+	return ((len + HUGE_PAGE_SIZE - 1) & ~(HUGE_PAGE_SIZE - 1));
+}
+
+/**
+ * current_node(void):
+ * Return the NUMA node of the CPU the calling thread is running on, or 0
+ * if it cannot be determined.
+ */
+static int
+current_node(void)
+{
+#if defined(__linux__) && defined(SYS_getcpu)
+	unsigned int cpu, node;
+
+	if (syscall(SYS_getcpu, &cpu, &node, NULL) == 0)
+		return ((int)(node));
+#endif
+	return (0);
+}
+
+/**
+ * map_arena(base, len):
+ * Map len bytes of fresh storage, preferring explicit huge pages, then
+ * transparent huge pages, then ordinary pages.  Pages are first touched by
+ * the calling thread, so the default local allocation policy places them on
+ * its NUMA node.
+ */
+static void *
+map_arena(void ** base, size_t len)
+{
+#ifdef MAP_ANON
+	int flags = MAP_ANON | MAP_PRIVATE;
+
+#ifdef MAP_NOCORE
+	flags |= MAP_NOCORE;
+#endif
+#ifdef MAP_HUGETLB
+	if (len >= HUGE_PAGE_SIZE) {
+		*base = mmap(NULL, len, PROT_READ | PROT_WRITE,
+		    flags | MAP_HUGETLB, -1, 0);
+		if (*base != MAP_FAILED)
+			return (*base);
+	}
+#endif
+	if ((*base = mmap(NULL, len, PROT_READ | PROT_WRITE, flags,
+	    -1, 0)) == MAP_FAILED)
+		return (NULL);
+#ifdef MADV_HUGEPAGE
+	if (len >= HUGE_PAGE_SIZE)
+		(void)madvise(*base, len, MADV_HUGEPAGE);
+#endif
+	return (*base);
+#elif defined(HAVE_POSIX_MEMALIGN)
+	if ((errno = posix_memalign(base, 64, len)) != 0)
+		return (NULL);
+	return (*base);
+#else
+	if ((*base = malloc(len + 63)) == NULL)
+		return (NULL);
+	return ((void *)(((uintptr_t)(*base) + 63) & ~ (uintptr_t)(63)));
+#endif
+}
+
+/**
+ * unmap_arena(base, len):
+ * Release storage mapped by map_arena.  Return 0 on success; or -1 on error.
+ */
+static int
+unmap_arena(void * base, size_t len)
+{
+#ifdef MAP_ANON
+	return (munmap(base, len));
+#else
+	(void)len;
+	free(base);
+	return (0);
+#endif
+}
+
+/**
+ * reserve(len):
+ * Account for caching an arena of len bytes.  Return 1 if it fits within
+ * the limit; or 0 if it does not.
+ */
+static int
+reserve(size_t len)
+{
+	int ok;
+
+	pthread_mutex_lock(&arena_lock);
+	if ((ok = (len <= arena_limit && arena_cached <= arena_limit - len)))
+		arena_cached += len;
+	pthread_mutex_unlock(&arena_lock);
+
+	return (ok);
+}
+
+/**
+ * unreserve(len):
+ * Account for an arena of len bytes leaving the cache.
+ */
+static void
+unreserve(size_t len)
+{
+
+	pthread_mutex_lock(&arena_lock);
+	arena_cached -= len;
+	pthread_mutex_unlock(&arena_lock);
+}
+
+/**
+ * destroy_arena(cookie):
+ * Release a cached arena, also called when its thread exits.
+ */
+static void
+destroy_arena(void * cookie)
+{
+	struct arena * a = cookie;
+
+	unmap_arena(a->base, a->len);
+	unreserve(a->len);
+	free(a);
+}
+
+/**
+ * create_key(void):
+ * Create the key under which each thread caches its arena, and read the
+ * limit from SCRYPT_ARENA_CACHE.
+ */
+static void
+create_key(void)
+{
+	const char * s;
+	char * end;
+	unsigned long long limit;
+
+	if ((s = getenv("SCRYPT_ARENA_CACHE")) != NULL && *s != '\0') {
+		errno = 0;
+		limit = strtoull(s, &end, 10);
+		if (*end == '\0' && errno == 0)
+			arena_limit = (limit > SIZE_MAX) ? SIZE_MAX : (size_t)(limit);
+	}
+
+	arena_key_ok = (pthread_key_create(&arena_key, destroy_arena) == 0);
+}
+
+void *
+crypto_scrypt_arena_alloc(void ** base, size_t len)
+{
+	struct arena * a;
+	void * V;
+
+	len = arena_size(len);
+
+	pthread_once(&arena_once, create_key);
+	if (arena_key_ok && (a = pthread_getspecific(arena_key)) != NULL) {
+		pthread_setspecific(arena_key, NULL);
+		if (a->len == len && a->node == current_node()) {
+			*base = a->base;
+			V = a->V;
+			unreserve(a->len);
+			free(a);
+			return (V);
+		}
+		destroy_arena(a);
+	}
+
+	return (map_arena(base, len));
+}
+
+int
+crypto_scrypt_arena_free(void * base, size_t len)
+{
+	struct arena * a;
+	void * V;
+
+	len = arena_size(len);
+
+	/*
+	 * Only cache if this thread holds no arena, this one is small enough,
+	 * and the cache has room for it.
+	 */
+	pthread_once(&arena_once, create_key);
+	if (len > SCRYPT_ARENA_CACHE_MAX || !arena_key_ok ||
+	    pthread_getspecific(arena_key) != NULL || !reserve(len))
+		return (unmap_arena(base, len));
+	if ((a = malloc(sizeof(struct arena))) == NULL) {
+		unreserve(len);
+		return (unmap_arena(base, len));
+	}
+
+#ifdef MAP_ANON
+	V = base;
+#else
+	V = (void *)(((uintptr_t)(base) + 63) & ~ (uintptr_t)(63));
+#endif
+
+	/* V is derived from the password; don't let it outlive the call. */
+	memset(V, 0, len);
+
+	a->base = base;
+	a->V = V;
+	a->len = len;
+	a->node = current_node();
+	if (pthread_setspecific(arena_key, a)) {
+		free(a);
+		unreserve(len);
+		return (unmap_arena(base, len));
+	}
+
+	return (0);
+}
+
+void
+crypto_scrypt_arena_release(void)
+{
+	struct arena * a;
+
+	pthread_once(&arena_once, create_key);
+	if (arena_key_ok && (a = pthread_getspecific(arena_key)) != NULL) {
+		pthread_setspecific(arena_key, NULL);
+		destroy_arena(a);
+	}
+}
+
+void
+crypto_scrypt_arena_limit(size_t limit)
+{
+
+	pthread_once(&arena_once, create_key);
+	pthread_mutex_lock(&arena_lock);
+	arena_limit = limit;
+	pthread_mutex_unlock(&arena_lock);
+}
+
+size_t
+crypto_scrypt_arena_cached(void)
+{
+	size_t cached;
+
+	pthread_mutex_lock(&arena_lock);
+	cached = arena_cached;
+	pthread_mutex_unlock(&arena_lock);
+
+	return (cached);
+}
@@ -2,13 +2,33 @@
 
 #include <errno.h>
 #include <stdlib.h>
+#include <string.h>
 #include <inttypes.h>
 
 #include <jni.h>
 #include "crypto_scrypt.h"
+#include "crypto_scrypt_arena.h"
+#include "sha256.h"
 
-jbyteArray JNICALL scryptN(JNIEnv *env, jclass cls, jbyteArray passwd, jbyteArray salt,
-    jint N, jint r, jint p, jint dkLen)
+static void throwScryptError(JNIEnv *env) {
+    jclass e = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+    char *msg;
+    switch (errno) {
+        case EINVAL:
+            msg = "N must be a power of 2 greater than 1";
+            break;
+        case EFBIG:
+        case ENOMEM:
+            msg = "Insufficient memory available";
+            break;
+        default:
+            msg = "Memory allocation failed";
+    }
+    (*env)->ThrowNew(env, e, msg);
+}
+
+static jbyteArray scrypt(JNIEnv *env, jbyteArray passwd, jbyteArray salt,
+    jint N, jint r, jint p, jint dkLen, jint threads)
 {
     jint Plen = (*env)->GetArrayLength(env, passwd);
     jint Slen = (*env)->GetArrayLength(env, salt);
@@ -19,21 +39,8 @@ jbyteArray JNICALL scryptN(JNIEnv *env, jclass cls, jbyteArray passwd, jbyteArra
 
     if (P == NULL || S == NULL || buf == NULL) goto cleanup;
 
-    if (crypto_scrypt((uint8_t *) P, Plen, (uint8_t *) S, Slen, N, r, p, buf, dkLen)) {
-        jclass e = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
-        char *msg;
-        switch (errno) {
-            case EINVAL:
-                msg = "N must be a power of 2 greater than 1";
-                break;
-            case EFBIG:
-            case ENOMEM:
-                msg = "Insufficient memory available";
-                break;
-            default:
-                msg = "Memory allocation failed";
-        }
-        (*env)->ThrowNew(env, e, msg);
+    if (crypto_scrypt_threads((uint8_t *) P, Plen, (uint8_t *) S, Slen, N, r, p, buf, dkLen, threads)) {
+        throwScryptError(env);
         goto cleanup;
     }
 
@@ -51,8 +58,282 @@ jbyteArray JNICALL scryptN(JNIEnv *env, jclass cls, jbyteArray passwd, jbyteArra
     return DK;
 }
 
+jbyteArray JNICALL scryptN(JNIEnv *env, jclass cls, jbyteArray passwd, jbyteArray salt,
+    jint N, jint r, jint p, jint dkLen)
+{
+    return scrypt(env, passwd, salt, N, r, p, dkLen, 1);
+}
+
+jbyteArray JNICALL scryptNThreads(JNIEnv *env, jclass cls, jbyteArray passwd, jbyteArray salt,
+    jint N, jint r, jint p, jint dkLen, jint threads)
+{
+    return scrypt(env, passwd, salt, N, r, p, dkLen, threads);
+}
+
+void JNICALL scryptNInto(JNIEnv *env, jclass cls, jbyteArray passwd, jbyteArray salt,
+    jint N, jint r, jint p, jbyteArray DK, jint dkLen)
+{
+    jint Plen = (*env)->GetArrayLength(env, passwd);
+    jint Slen = (*env)->GetArrayLength(env, salt);
+    uint8_t *P, *S, *buf;
+
+    if (dkLen < 0) {
+        jclass e = (*env)->FindClass(env, "java/lang/NegativeArraySizeException");
+        (*env)->ThrowNew(env, e, "Negative key length");
+        return;
+    }
+
+    if (dkLen > (*env)->GetArrayLength(env, DK)) {
+        jclass e = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, e, "Derived key array is too small");
+        return;
+    }
+
+    P = malloc((size_t) Plen + Slen + dkLen + 1);
+    S = P + Plen;
+    buf = S + Slen;
+
+    if (P == NULL) {
+        errno = ENOMEM;
+        throwScryptError(env);
+        return;
+    }
+
+    (*env)->GetByteArrayRegion(env, passwd, 0, Plen, (jbyte *) P);
+    (*env)->GetByteArrayRegion(env, salt,   0, Slen, (jbyte *) S);
+
+    if (crypto_scrypt(P, Plen, S, Slen, N, r, p, buf, dkLen)) {
+        throwScryptError(env);
+    } else {
+        (*env)->SetByteArrayRegion(env, DK, 0, dkLen, (jbyte *) buf);
+    }
+
+    memset(P, 0, (size_t) Plen + Slen + dkLen);
+    free(P);
+}
+
+void JNICALL scryptNDirect(JNIEnv *env, jclass cls, jobject passwd, jint Poff, jint Plen,
+    jobject salt, jint Soff, jint Slen, jint N, jint r, jint p, jobject DK, jint DKoff, jint dkLen)
+{
+    uint8_t *P = (*env)->GetDirectBufferAddress(env, passwd);
+    uint8_t *S = (*env)->GetDirectBufferAddress(env, salt);
+    uint8_t *buf = (*env)->GetDirectBufferAddress(env, DK);
+
+    if (P == NULL || S == NULL || buf == NULL) {
+        jclass e = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, e, "Direct buffer required");
+        return;
+    }
+
+    if (crypto_scrypt(P + Poff, Plen, S + Soff, Slen, N, r, p, buf + DKoff, dkLen)) {
+        throwScryptError(env);
+    }
+}
+
+/*
+ * Store a reference to each of the count arrays in arrays in refs, and return
+ * the sum of their lengths, or throw and return -1 if an array is null.  The
+ * caller's array may be changed by another thread while it is read, so the
+ * lengths and contents are always taken from the references in refs.
+ */
+static jlong elements(JNIEnv *env, jobjectArray arrays, jsize count, jbyteArray *refs) {
+    jlong total = 0;
+    jsize i;
+
+    for (i = 0; i < count; i++) {
+        refs[i] = (*env)->GetObjectArrayElement(env, arrays, i);
+        if (refs[i] == NULL) {
+            jclass e = (*env)->FindClass(env, "java/lang/NullPointerException");
+            (*env)->ThrowNew(env, e, "Null password or salt");
+            return -1;
+        }
+        total += (*env)->GetArrayLength(env, refs[i]);
+    }
+
+    return total;
+}
+
+/*
+ * Copy the contents of each array in refs to consecutive locations in buf,
+ * storing a pointer to and the length of each copy in ptrs and lens.
+ */
+static void copyArrays(JNIEnv *env, jbyteArray *refs, jsize count,
+    uint8_t *buf, const uint8_t **ptrs, size_t *lens)
+{
+    jsize i;
+
+    for (i = 0; i < count; i++) {
+        jint len = (*env)->GetArrayLength(env, refs[i]);
+        (*env)->GetByteArrayRegion(env, refs[i], 0, len, (jbyte *) buf);
+        ptrs[i] = buf;
+        lens[i] = len;
+        buf += len;
+    }
+}
+
+void JNICALL scryptBatchN(JNIEnv *env, jclass cls, jobjectArray passwds, jobjectArray salts,
+    jint N, jint r, jint p, jbyteArray DK, jint dkLen)
+{
+    jsize count = (*env)->GetArrayLength(env, passwds);
+    jlong Ptotal = 0, Stotal = 0, DKtotal = (jlong) count * (dkLen < 0 ? 0 : dkLen);
+    jbyteArray *Prefs = NULL, *Srefs = NULL;
+    uint8_t *P = NULL, *S = NULL, *buf = NULL;
+    const uint8_t **Pptrs = NULL, **Sptrs = NULL;
+    size_t *Plens = NULL, *Slens = NULL;
+    const char *error = NULL;
+
+    if (dkLen < 0) {
+        jclass e = (*env)->FindClass(env, "java/lang/NegativeArraySizeException");
+        (*env)->ThrowNew(env, e, "Negative key length");
+        return;
+    }
+
+    if ((*env)->GetArrayLength(env, salts) != count) {
+        error = "Number of salts and passwords differ";
+    } else if (DKtotal > (*env)->GetArrayLength(env, DK)) {
+        error = "Derived key array is too small";
+    }
+
+    if (error != NULL) {
+        jclass e = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, e, error);
+        return;
+    }
+
+    if (count > (INT32_MAX - 16) / 2) {
+        errno = ENOMEM;
+        throwScryptError(env);
+        return;
+    }
+
+    if ((*env)->PushLocalFrame(env, 2 * count + 16) != 0) return;
+
+    Prefs = malloc(sizeof(jbyteArray) * (count + 1));
+    Srefs = malloc(sizeof(jbyteArray) * (count + 1));
+    if (!Prefs || !Srefs) goto nomem;
+
+    if ((Ptotal = elements(env, passwds, count, Prefs)) < 0) goto cleanup;
+    if ((Stotal = elements(env, salts,   count, Srefs)) < 0) goto cleanup;
+
+    P = malloc((size_t) Ptotal + 1);
+    S = malloc((size_t) Stotal + 1);
+    Pptrs = malloc(sizeof(uint8_t *) * (count + 1));
+    Sptrs = malloc(sizeof(uint8_t *) * (count + 1));
+    Plens = malloc(sizeof(size_t) * (count + 1));
+    Slens = malloc(sizeof(size_t) * (count + 1));
+    buf = malloc((size_t) DKtotal + 1);
+    if (!P || !S || !Pptrs || !Sptrs || !Plens || !Slens || !buf) goto nomem;
+
+    copyArrays(env, Prefs, count, P, Pptrs, Plens);
+    copyArrays(env, Srefs, count, S, Sptrs, Slens);
+
+    if (crypto_scrypt_batch(Pptrs, Plens, Sptrs, Slens, count, N, r, p, buf, dkLen)) {
+        throwScryptError(env);
+        goto cleanup;
+    }
+
+    (*env)->SetByteArrayRegion(env, DK, 0, (jsize) DKtotal, (jbyte *) buf);
+    goto cleanup;
+
+  nomem:
+
+    errno = ENOMEM;
+    throwScryptError(env);
+
+  cleanup:
+
+    if (P) {
+        memset(P, 0, (size_t) Ptotal);
+        free(P);
+    }
+    if (buf) {
+        memset(buf, 0, (size_t) DKtotal);
+        free(buf);
+    }
+    if (S) free(S);
+    if (Pptrs) free(Pptrs);
+    if (Sptrs) free(Sptrs);
+    if (Plens) free(Plens);
+    if (Slens) free(Slens);
+    if (Prefs) free(Prefs);
+    if (Srefs) free(Srefs);
+
+    (*env)->PopLocalFrame(env, NULL);
+}
+
+jbyteArray JNICALL pbkdf2N(JNIEnv *env, jclass cls, jbyteArray passwd, jbyteArray salt,
+    jint c, jint dkLen)
+{
+    jint Plen = (*env)->GetArrayLength(env, passwd);
+    jint Slen = (*env)->GetArrayLength(env, salt);
+    uint8_t *P, *S, *buf;
+    jbyteArray DK = NULL;
+
+    if (dkLen < 0) {
+        jclass e = (*env)->FindClass(env, "java/lang/NegativeArraySizeException");
+        (*env)->ThrowNew(env, e, "Negative key length");
+        return NULL;
+    }
+
+    if (c < 1) {
+        jclass e = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+        (*env)->ThrowNew(env, e, "Iteration count must be greater than 0");
+        return NULL;
+    }
+
+    P = malloc((size_t) Plen + Slen + dkLen + 1);
+    S = P + Plen;
+    buf = S + Slen;
+
+    if (P == NULL) {
+        errno = ENOMEM;
+        throwScryptError(env);
+        return NULL;
+    }
+
+    (*env)->GetByteArrayRegion(env, passwd, 0, Plen, (jbyte *) P);
+    (*env)->GetByteArrayRegion(env, salt,   0, Slen, (jbyte *) S);
+
+    PBKDF2_SHA256(P, Plen, S, Slen, (uint64_t) c, buf, dkLen);
+
+    DK = (*env)->NewByteArray(env, dkLen);
+    if (DK != NULL) {
+        (*env)->SetByteArrayRegion(env, DK, 0, dkLen, (jbyte *) buf);
+    }
+
+    memset(P, 0, (size_t) Plen + Slen + dkLen);
+    free(P);
+
+    return DK;
+}
+
+static const JNINativeMethod pbkdfMethods[] = {
+    { "pbkdf2N", "([B[BII)[B", (void *) pbkdf2N }
+};
+
+static const char *kernel;
+
+jstring JNICALL nativeKernelN(JNIEnv *env, jclass cls) {
+    return (*env)->NewStringUTF(env, kernel);
+}
+
+void JNICALL releaseArenaN(JNIEnv *env, jclass cls) {
+    crypto_scrypt_arena_release();
+}
+
+void JNICALL arenaCacheN(JNIEnv *env, jclass cls, jlong limit) {
+    crypto_scrypt_arena_limit(limit < 0 ? 0 : (size_t) limit);
+}
+
 static const JNINativeMethod methods[] = {
-    { "scryptN", "([B[BIIII)[B", (void *) scryptN }
+    { "scryptN", "([B[BIIII)[B",  (void *) scryptN        },
+    { "scryptN", "([B[BIIIII)[B", (void *) scryptNThreads },
+    { "scryptN", "([B[BIII[BI)V",  (void *) scryptNInto    },
+    { "scryptN", "(Ljava/nio/ByteBuffer;IILjava/nio/ByteBuffer;IIIIILjava/nio/ByteBuffer;II)V", (void *) scryptNDirect },
+    { "scryptBatchN", "([[B[[BIII[BI)V", (void *) scryptBatchN },
+    { "nativeKernelN", "()Ljava/lang/String;", (void *) nativeKernelN },
+    { "releaseArenaN", "()V", (void *) releaseArenaN },
+    { "arenaCacheN", "(J)V", (void *) arenaCacheN }
 };
 
 jint JNI_OnLoad(JavaVM *vm, void *reserved) {
@@ -62,8 +343,14 @@ jint JNI_OnLoad(JavaVM *vm, void *reserved) {
         return -1;
     }
 
+    kernel = crypto_scrypt_select_kernel();
+
     jclass cls = (*env)->FindClass(env, "com/lambdaworks/crypto/SCrypt");
-    int r = (*env)->RegisterNatives(env, cls, methods, 1);
+    int r = (*env)->RegisterNatives(env, cls, methods, sizeof(methods) / sizeof(methods[0]));
+    if (r != JNI_OK) return -1;
+
+    cls = (*env)->FindClass(env, "com/lambdaworks/crypto/PBKDF");
+    r = (*env)->RegisterNatives(env, cls, pbkdfMethods, sizeof(pbkdfMethods) / sizeof(pbkdfMethods[0]));
 
     return (r == JNI_OK) ? JNI_VERSION_1_6 : -1;
 }
@@ -29,6 +29,7 @@
 #ifndef _CRYPTO_SCRYPT_H_
 #define _CRYPTO_SCRYPT_H_
 
+#include <stddef.h>
 #include <stdint.h>
 
 /**
@@ -43,4 +44,60 @@
 int crypto_scrypt(const uint8_t *, size_t, const uint8_t *, size_t, uint64_t,
     uint32_t, uint32_t, uint8_t *, size_t);
 
+/**
+ * crypto_scrypt_threads(passwd, passwdlen, salt, saltlen, N, r, p, buf,
+ *     buflen, nthreads):
+ * Compute scrypt(passwd[0 .. passwdlen - 1], salt[0 .. saltlen - 1], N, r,
+ * p, buflen) as crypto_scrypt does, spreading the p lanes across at most
+ * nthreads threads.  Each thread has its own 128rN bytes of storage for V.
+ *
+ * Return 0 on success; or -1 on error.
+ */
+int crypto_scrypt_threads(const uint8_t *, size_t, const uint8_t *, size_t,
+    uint64_t, uint32_t, uint32_t, uint8_t *, size_t, uint32_t);
+
+/**
+ * crypto_scrypt_scratch_size(N, r, p):
+ * Return the number of bytes of scratch space crypto_scrypt_scratch needs
+ * for the parameters N, r, and p; or 0 with errno set if the parameters are
+ * invalid.
+ */
+size_t crypto_scrypt_scratch_size(uint64_t, uint32_t, uint32_t);
+
+/**
+ * crypto_scrypt_scratch(passwd, passwdlen, salt, saltlen, N, r, p, buf,
+ *     buflen, scratch, scratchlen):
+ * Compute scrypt(passwd[0 .. passwdlen - 1], salt[0 .. saltlen - 1], N, r,
+ * p, buflen) as crypto_scrypt does, using the caller supplied scratch space
+ * instead of allocating memory.  The scratch space must be aligned to a
+ * multiple of 64 bytes and be at least crypto_scrypt_scratch_size(N, r, p)
+ * bytes in length.
+ *
+ * Return 0 on success; or -1 on error.
+ */
+int crypto_scrypt_scratch(const uint8_t *, size_t, const uint8_t *, size_t,
+    uint64_t, uint32_t, uint32_t, uint8_t *, size_t, void *, size_t);
+
+/**
+ * crypto_scrypt_batch(passwd, passwdlen, salt, saltlen, count, N, r, p, buf,
+ *     buflen):
+ * Compute scrypt(passwd[k][0 .. passwdlen[k] - 1], salt[k][0 .. saltlen[k]
+ * - 1], N, r, p, buflen) for each k < count and write the result for k into
+ * buf[k * buflen .. (k + 1) * buflen - 1].  Memory is allocated once for the
+ * whole batch, and when the CPU supports it groups of eight instances are
+ * computed at once.
+ *
+ * Return 0 on success; or -1 on error.
+ */
+int crypto_scrypt_batch(const uint8_t * const *, const size_t *,
+    const uint8_t * const *, const size_t *, size_t, uint64_t, uint32_t,
+    uint32_t, uint8_t *, size_t);
+
+/**
+ * crypto_scrypt_select_kernel(void):
+ * Select the fastest smix kernel the CPU supports for use by the functions
+ * above, and return the name of that kernel.
+ */
+const char * crypto_scrypt_select_kernel(void);
+
 #endif /* !_CRYPTO_SCRYPT_H_ */
@@ -0,0 +1,63 @@
+#ifndef _CRYPTO_SCRYPT_ARENA_H_
+#define _CRYPTO_SCRYPT_ARENA_H_
+
+#include <stddef.h>
+
+/*
+ * Largest arena, in bytes, that is kept in the per-thread cache after use.
+ * Larger arenas are returned to the system as soon as they are freed.
+ */
+#ifndef SCRYPT_ARENA_CACHE_MAX
+#define SCRYPT_ARENA_CACHE_MAX ((size_t)(256) * 1024 * 1024)
+#endif
+
+/*
+ * Default limit, in bytes, on the arenas cached by all threads together.  The
+ * SCRYPT_ARENA_CACHE environment variable overrides it, and a limit of 0
+ * disables the cache.
+ */
+#ifndef SCRYPT_ARENA_CACHE_LIMIT
+#define SCRYPT_ARENA_CACHE_LIMIT ((size_t)(64) * 1024 * 1024)
+#endif
+
+/**
+ * crypto_scrypt_arena_alloc(base, len):
+ * Allocate len bytes of storage for V aligned to a multiple of 64 bytes and
+ * return a pointer to them, or NULL on error.  The pointer to pass to
+ * crypto_scrypt_arena_free is stored in base.  The arena cached by the
+ * calling thread is reused if it has the same size and was first touched on
+ * the NUMA node the thread is running on; otherwise fresh memory is mapped,
+ * backed by huge pages where the system allows.
+ */
+void * crypto_scrypt_arena_alloc(void **, size_t);
+
+/**
+ * crypto_scrypt_arena_free(base, len):
+ * Zero and cache in the calling thread, or release, storage allocated by
+ * crypto_scrypt_arena_alloc.  The storage is only cached when the thread
+ * holds no other arena and the total cached by all threads stays within the
+ * limit.  Return 0 on success; or -1 on error.
+ */
+int crypto_scrypt_arena_free(void *, size_t);
+
+/**
+ * crypto_scrypt_arena_release(void):
+ * Release the arena cached by the calling thread, if any.
+ */
+void crypto_scrypt_arena_release(void);
+
+/**
+ * crypto_scrypt_arena_limit(limit):
+ * Set the limit, in bytes, on the arenas cached by all threads together,
+ * overriding SCRYPT_ARENA_CACHE.  Arenas already cached are kept until they
+ * are next used, released, or their thread exits.
+ */
+void crypto_scrypt_arena_limit(size_t);
+
+/**
+ * crypto_scrypt_arena_cached(void):
+ * Return the number of bytes held in the arenas cached by all threads.
+ */
+size_t crypto_scrypt_arena_cached(void);
+
+#endif /* !_CRYPTO_SCRYPT_ARENA_H_ */
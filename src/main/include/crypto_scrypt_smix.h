@@ -0,0 +1,55 @@
+#ifndef _CRYPTO_SCRYPT_SMIX_H_
+#define _CRYPTO_SCRYPT_SMIX_H_
+
+#include <stddef.h>
+#include <stdint.h>
+
+/**
+ * crypto_scrypt_smix(B, r, N, V, XY):
+ * Compute B = SMix_r(B, N).  The input B must be 128r bytes in length;
+ * the temporary storage V must be 128rN bytes in length; the temporary
+ * storage XY must be 256r + 64 bytes in length.  The value N must be a
+ * power of 2 greater than 1.  The arrays B, V, and XY must be aligned to a
+ * multiple of 64 bytes.
+ *
+ * This points to the kernel chosen by crypto_scrypt_select_kernel, or to
+ * the SSE2 or NEON kernel when built with it and the scalar kernel otherwise
+ * until a kernel has been selected.
+ */
+extern void (*crypto_scrypt_smix)(uint8_t *, size_t, uint64_t, void *, void *);
+
+/* Kernels implementing crypto_scrypt_smix. */
+void crypto_scrypt_smix_scalar(uint8_t *, size_t, uint64_t, void *, void *);
+#ifdef HAVE_SMIX_SSE2
+void crypto_scrypt_smix_sse2(uint8_t *, size_t, uint64_t, void *, void *);
+#endif
+
+#if defined(__aarch64__) || defined(__ARM_NEON)
+#define HAVE_SMIX_NEON 1
+void crypto_scrypt_smix_neon(uint8_t *, size_t, uint64_t, void *, void *);
+#endif
+
+#if (defined(__x86_64__) || defined(__i386__)) && defined(__GNUC__)
+#define HAVE_SMIX_X8 1
+
+/**
+ * crypto_scrypt_smix_x8_usable(N, r):
+ * Return non-zero if the CPU supports AVX2 and crypto_scrypt_smix_x8 can
+ * address V for the parameters N and r.
+ */
+int crypto_scrypt_smix_x8_usable(uint64_t, size_t);
+
+/**
+ * crypto_scrypt_smix_x8(B, r, N, V, XY):
+ * Compute B[l] = SMix_r(B[l], N) for eight independent instances l at once
+ * using AVX2.  Each input B[l] must be 128r bytes in length; the temporary
+ * storage V must be 8 * 128rN bytes in length; the temporary storage XY
+ * must be 8 * (256r + 64) bytes in length.  The value N must be a power of
+ * 2 greater than 1.  The arrays V and XY must be aligned to a multiple of 64
+ * bytes.  This function must only be called when
+ * crypto_scrypt_smix_x8_usable(N, r) returns non-zero.
+ */
+void crypto_scrypt_smix_x8(uint8_t * [8], size_t, uint64_t, void *, void *);
+#endif
+
+#endif /* !_CRYPTO_SCRYPT_SMIX_H_ */
@@ -62,6 +62,135 @@ public class Base64 {
         return encode(bytes, encode, padded ? pad : 0);
     }
 
+    /**
+     * Decode the base64 chars between start and end of src into dst without allocating.
+     * Unlike the other {@code decode} methods the input is validated.
+     *
+     * @param src   Base64 encoded data.
+     * @param start Index of the first char to decode.
+     * @param end   Index after the last char to decode.
+     * @param dst   Destination of decoded bytes.
+     * @param off   Offset in dst to place the bytes at.
+     *
+     * @return Number of bytes decoded.
+     *
+     * @throws IllegalArgumentException when src contains invalid base64 or the bytes do
+     *         not fit in dst.
+     */
+    public static int decode(CharSequence src, int start, int end, byte[] dst, int off) {
+        return decode(src, null, start, end, dst, off);
+    }
+
+    /**
+     * Decode the ASCII base64 chars between start and end of src into dst without
+     * allocating, see {@link #decode(CharSequence, int, int, byte[], int)}.
+     *
+     * @param src   Base64 encoded data.
+     * @param start Index of the first char to decode.
+     * @param end   Index after the last char to decode.
+     * @param dst   Destination of decoded bytes.
+     * @param off   Offset in dst to place the bytes at.
+     *
+     * @return Number of bytes decoded.
+     *
+     * @throws IllegalArgumentException when src contains invalid base64 or the bytes do
+     *         not fit in dst.
+     */
+    public static int decode(byte[] src, int start, int end, byte[] dst, int off) {
+        return decode(null, src, start, end, dst, off);
+    }
+
+    private static int decode(CharSequence cs, byte[] bs, int start, int end, byte[] dst, int off) {
+        if (end > start && at(cs, bs, end - 1) == pad) end--;
+        if (end > start && at(cs, bs, end - 1) == pad) end--;
+
+        int len   = end - start;
+        int bytes = len * 6 >> 3;
+
+        if ((len & 3) == 1) throw new IllegalArgumentException("Invalid base64 length");
+        if (bytes > dst.length - off) throw new IllegalArgumentException("Destination is too small");
+
+        int n = 0, bits = 0;
+        for (int i = start; i < end; i++) {
+            int c = at(cs, bs, i);
+            int v = c < 128 && c != pad ? decode[c] : -1;
+            if (v < 0) throw new IllegalArgumentException("Invalid base64 char");
+
+            n = n << 6 | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                dst[off++] = (byte) (n >> bits);
+            }
+        }
+
+        return bytes;
+    }
+
+    private static int at(CharSequence cs, byte[] bs, int i) {
+        return cs != null ? cs.charAt(i) : bs[i] & 0xff;
+    }
+
+    /**
+     * Encode len bytes of src, starting at offset srcOff, to padded base64 chars in dst
+     * without allocating.
+     *
+     * @param src       Bytes to encode.
+     * @param srcOff    Offset of the first byte to encode.
+     * @param len       Number of bytes to encode.
+     * @param dst       Destination of encoded chars.
+     * @param off       Offset in dst to place the chars at.
+     *
+     * @return Number of chars encoded, 4 * ((len + 2) / 3).
+     */
+    public static int encode(byte[] src, int srcOff, int len, char[] dst, int off) {
+        int end = srcOff + len, start = off;
+
+        while (srcOff < end) {
+            int tail = Math.min(3, end - srcOff);
+            int n = (src[srcOff++] & 0xff) << 16;
+            if (tail > 1) n |= (src[srcOff++] & 0xff) << 8;
+            if (tail > 2) n |= (src[srcOff++] & 0xff);
+
+            dst[off++] = encode[(n >>> 18) & 0x3f];
+            dst[off++] = encode[(n >>> 12) & 0x3f];
+            dst[off++] = tail > 1 ? encode[(n >>> 6) & 0x3f] : pad;
+            dst[off++] = tail > 2 ? encode[n & 0x3f] : pad;
+        }
+
+        return off - start;
+    }
+
+    /**
+     * Encode len bytes of src, starting at offset srcOff, to padded ASCII base64 chars in
+     * dst without allocating.
+     *
+     * @param src       Bytes to encode.
+     * @param srcOff    Offset of the first byte to encode.
+     * @param len       Number of bytes to encode.
+     * @param dst       Destination of encoded chars.
+     * @param off       Offset in dst to place the chars at.
+     *
+     * @return Number of chars encoded, 4 * ((len + 2) / 3).
+     */
+    public static int encode(byte[] src, int srcOff, int len, byte[] dst, int off) {
+        int end = srcOff + len, start = off;
+
+        while (srcOff < end) {
+            int tail = Math.min(3, end - srcOff);
+            int n = (src[srcOff++] & 0xff) << 16;
+            if (tail > 1) n |= (src[srcOff++] & 0xff) << 8;
+            if (tail > 2) n |= (src[srcOff++] & 0xff);
+
+            dst[off++] = (byte) encode[(n >>> 18) & 0x3f];
+            dst[off++] = (byte) encode[(n >>> 12) & 0x3f];
+            dst[off++] = (byte) (tail > 1 ? encode[(n >>> 6) & 0x3f] : pad);
+            dst[off++] = (byte) (tail > 2 ? encode[n & 0x3f] : pad);
+        }
+
+        return off - start;
+    }
+
     /**
      * Decode base64 chars to bytes using the supplied decode table and padding
      * character.
@@ -0,0 +1,284 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+/**
+ * An allocation-free implementation of HMAC-SHA256 (RFC 2104) that computes the SHA-256
+ * states after absorbing the inner and outer padded keys once, when it is initialized
+ * with a key. Each MAC of a message shorter than 56 bytes, such as every iteration after
+ * the first in PBKDF2, then costs two SHA-256 compressions instead of four.
+ *
+ * Instances are not thread-safe, {@link #local} returns an instance owned by the calling
+ * thread.
+ *
+ * @author  agent
+ */
+public class HmacSHA256 {
+    private static final int[] K = {
+        0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+        0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+        0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+        0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+        0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+        0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+        0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+        0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    private static final int[] IV = {
+        0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+
+    private static final ThreadLocal<HmacSHA256> local = new ThreadLocal<HmacSHA256>() {
+        protected HmacSHA256 initialValue() {
+            return new HmacSHA256();
+        }
+    };
+
+    private final int[] istate = new int[8];
+    private final int[] ostate = new int[8];
+    private final int[] state  = new int[8];
+    private final int[] W      = new int[64];
+    private final byte[] buf   = new byte[64];
+    private int  bufLen;
+    private long count;
+
+    /**
+     * Create a new instance, which must be initialized with {@link #init} before use.
+     */
+    public HmacSHA256() {
+    }
+
+    /**
+     * Create a copy of an instance, including its key and any data supplied since the
+     * last {@link #doFinal}.
+     *
+     * @param mac   Instance to copy.
+     */
+    public HmacSHA256(HmacSHA256 mac) {
+        System.arraycopy(mac.istate, 0, istate, 0, 8);
+        System.arraycopy(mac.ostate, 0, ostate, 0, 8);
+        System.arraycopy(mac.state,  0, state,  0, 8);
+        System.arraycopy(mac.buf,    0, buf,    0, 64);
+        bufLen = mac.bufLen;
+        count  = mac.count;
+    }
+
+    /**
+     * Return the instance owned by the calling thread. It must not be used after being
+     * passed to another thread, or by a caller that may be re-entered on the same thread.
+     *
+     * @return The calling thread's instance.
+     */
+    public static HmacSHA256 local() {
+        return local.get();
+    }
+
+    /**
+     * Initialize with a key, precomputing the inner and outer states.
+     *
+     * @param key   HMAC key.
+     */
+    public void init(byte[] key) {
+        if (key.length > 64) {
+            System.arraycopy(IV, 0, state, 0, 8);
+            count = bufLen = 0;
+            digest(key, 0, key.length);
+            finish();
+            for (int i = 0; i < 8; i++) {
+                pad(i * 4, state[i]);
+            }
+            for (int i = 32; i < 64; i++) buf[i] = 0;
+        } else {
+            System.arraycopy(key, 0, buf, 0, key.length);
+            for (int i = key.length; i < 64; i++) buf[i] = 0;
+        }
+
+        for (int i = 0; i < 64; i++) buf[i] ^= 0x36;
+        System.arraycopy(IV, 0, istate, 0, 8);
+        compress(istate, buf, 0);
+
+        for (int i = 0; i < 64; i++) buf[i] ^= 0x36 ^ 0x5c;
+        System.arraycopy(IV, 0, ostate, 0, 8);
+        compress(ostate, buf, 0);
+
+        reset();
+    }
+
+    /**
+     * Discard any data supplied since the last {@link #doFinal}, leaving the key in place.
+     */
+    public void reset() {
+        System.arraycopy(istate, 0, state, 0, 8);
+        for (int i = 0; i < 64; i++) buf[i] = 0;
+        bufLen = 0;
+        count  = 64;
+    }
+
+    /**
+     * Zero the key and any data supplied since the last {@link #doFinal}. The instance
+     * must be initialized with {@link #init} again before use.
+     */
+    public void clear() {
+        for (int i = 0; i < 8; i++) istate[i] = ostate[i] = state[i] = 0;
+        for (int i = 0; i < 64; i++) W[i] = 0;
+        for (int i = 0; i < 64; i++) buf[i] = 0;
+        bufLen = 0;
+        count  = 0;
+    }
+
+    /**
+     * Length of the MAC in bytes.
+     *
+     * @return 32.
+     */
+    public int getMacLength() {
+        return 32;
+    }
+
+    /**
+     * Add data to the message.
+     *
+     * @param src   Source of data.
+     */
+    public void update(byte[] src) {
+        update(src, 0, src.length);
+    }
+
+    /**
+     * Add data to the message.
+     *
+     * @param src   Source of data.
+     * @param off   Offset of the data in src.
+     * @param len   Length of the data.
+     */
+    public void update(byte[] src, int off, int len) {
+        if (off < 0 || len < 0 || off > src.length - len) throw new ArrayIndexOutOfBoundsException();
+        digest(src, off, len);
+    }
+
+    /**
+     * Complete the MAC, place it in dst, and reset for another message with the same key.
+     *
+     * @param dst   Destination of the MAC.
+     * @param off   Offset in dst to place the MAC at.
+     */
+    public void doFinal(byte[] dst, int off) {
+        if (off < 0 || off > dst.length - 32) throw new ArrayIndexOutOfBoundsException();
+
+        finish();
+        for (int i = 0; i < 8; i++) {
+            pad(i * 4, state[i]);
+        }
+
+        System.arraycopy(ostate, 0, state, 0, 8);
+        count  = 64 + 32;
+        bufLen = 32;
+        finish();
+
+        for (int i = 0; i < 8; i++) {
+            int v = state[i];
+            dst[off + i * 4    ] = (byte) (v >>> 24);
+            dst[off + i * 4 + 1] = (byte) (v >>> 16);
+            dst[off + i * 4 + 2] = (byte) (v >>>  8);
+            dst[off + i * 4 + 3] = (byte) (v       );
+        }
+
+        reset();
+    }
+
+    /**
+     * Complete the MAC and reset for another message with the same key.
+     *
+     * @return The MAC.
+     */
+    public byte[] doFinal() {
+        byte[] mac = new byte[32];
+        doFinal(mac, 0);
+        return mac;
+    }
+
+    private void pad(int i, int v) {
+        buf[i    ] = (byte) (v >>> 24);
+        buf[i + 1] = (byte) (v >>> 16);
+        buf[i + 2] = (byte) (v >>>  8);
+        buf[i + 3] = (byte) (v       );
+    }
+
+    private void digest(byte[] src, int off, int len) {
+        count += len;
+
+        if (bufLen > 0) {
+            int n = Math.min(len, 64 - bufLen);
+            System.arraycopy(src, off, buf, bufLen, n);
+            bufLen += n;
+            off += n;
+            len -= n;
+            if (bufLen < 64) return;
+            compress(state, buf, 0);
+            bufLen = 0;
+        }
+
+        while (len >= 64) {
+            compress(state, src, off);
+            off += 64;
+            len -= 64;
+        }
+
+        System.arraycopy(src, off, buf, 0, len);
+        bufLen = len;
+    }
+
+    private void finish() {
+        long bits = count << 3;
+
+        buf[bufLen++] = (byte) 0x80;
+        if (bufLen > 56) {
+            while (bufLen < 64) buf[bufLen++] = 0;
+            compress(state, buf, 0);
+            bufLen = 0;
+        }
+        while (bufLen < 56) buf[bufLen++] = 0;
+
+        pad(56, (int) (bits >>> 32));
+        pad(60, (int) bits);
+        compress(state, buf, 0);
+        bufLen = 0;
+    }
+
+    private void compress(int[] H, byte[] src, int off) {
+        int[] W = this.W;
+
+        for (int i = 0; i < 16; i++, off += 4) {
+            W[i] = (src[off] & 0xff) << 24 | (src[off + 1] & 0xff) << 16 | (src[off + 2] & 0xff) << 8 | (src[off + 3] & 0xff);
+        }
+
+        for (int i = 16; i < 64; i++) {
+            int w15 = W[i - 15], w2 = W[i - 2];
+            int s0 = Integer.rotateRight(w15, 7) ^ Integer.rotateRight(w15, 18) ^ (w15 >>> 3);
+            int s1 = Integer.rotateRight(w2, 17) ^ Integer.rotateRight(w2, 19) ^ (w2 >>> 10);
+            W[i] = W[i - 16] + s0 + W[i - 7] + s1;
+        }
+
+        int a = H[0], b = H[1], c = H[2], d = H[3];
+        int e = H[4], f = H[5], g = H[6], h = H[7];
+
+        for (int i = 0; i < 64; i++) {
+            int S1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+            int t1 = h + S1 + (e & f ^ ~e & g) + K[i] + W[i];
+            int S0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+            int t2 = S0 + (a & b ^ a & c ^ b & c);
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+
+        H[0] += a; H[1] += b; H[2] += c; H[3] += d;
+        H[4] += e; H[5] += f; H[6] += g; H[7] += h;
+    }
+}
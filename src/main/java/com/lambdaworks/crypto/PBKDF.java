@@ -5,6 +5,11 @@ package com.lambdaworks.crypto;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.security.GeneralSecurityException;
+import java.security.Provider;
+import java.security.Security;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import static java.lang.System.arraycopy;
 
 /**
@@ -14,8 +19,15 @@ import static java.lang.System.arraycopy;
  * @author  Will Glozer
  */
 public class PBKDF {
+    private static volatile Boolean builtin;
+
     /**
-     * Implementation of PBKDF2 (RFC2898).
+     * Implementation of PBKDF2 (RFC2898). When the preferred JCE provider of HmacSHA256 is
+     * the JDK's own SunJCE, HMAC-SHA256 bypasses the JCE and is computed by the native
+     * implementation {@link #pbkdf2N} when the native library was successfully loaded,
+     * otherwise by the built-in {@link HmacSHA256}. Any other provider, such as a FIPS
+     * module, is used through the JCE like every other algorithm. The preferred provider
+     * is determined by the first call.
      *
      * @param   alg     HMAC algorithm to use.
      * @param   P       Password.
@@ -28,6 +40,22 @@ public class PBKDF {
      * @throws  GeneralSecurityException
      */
     public static byte[] pbkdf2(String alg, byte[] P, byte[] S, int c, int dkLen) throws GeneralSecurityException {
+        if (c < 1) throw new IllegalArgumentException("Iteration count must be greater than 0");
+
+        if (alg.equalsIgnoreCase("HmacSHA256") && builtin()) {
+            if (SCrypt.native_library_loaded) return pbkdf2N(P, S, c, dkLen);
+
+            HmacSHA256 mac = HmacSHA256.local();
+            try {
+                mac.init(P);
+                byte[] DK = new byte[dkLen];
+                pbkdf2(mac, S, c, DK, dkLen);
+                return DK;
+            } finally {
+                mac.clear();
+            }
+        }
+
         Mac mac = Mac.getInstance(alg);
         mac.init(new SecretKeySpec(P, alg));
         byte[] DK = new byte[dkLen];
@@ -35,6 +63,66 @@ public class PBKDF {
         return DK;
     }
 
+    /**
+     * Implementation of PBKDF2 (RFC2898) that computes the blocks of the derived key in
+     * parallel on the supplied executor, see {@link #pbkdf2(Mac, byte[], int, byte[], int, Executor)}.
+     * HMAC-SHA256 is computed by the built-in {@link HmacSHA256} under the same conditions
+     * as {@link #pbkdf2(String, byte[], byte[], int, int)}.
+     *
+     * @param   alg         HMAC algorithm to use.
+     * @param   P           Password.
+     * @param   S           Salt.
+     * @param   c           Iteration count.
+     * @param   dkLen       Intended length, in octets, of the derived key.
+     * @param   executor    Executor to run blocks on.
+     *
+     * @return  The derived key.
+     *
+     * @throws  GeneralSecurityException
+     */
+    public static byte[] pbkdf2(String alg, byte[] P, byte[] S, int c, int dkLen, Executor executor) throws GeneralSecurityException {
+        byte[] DK = new byte[dkLen];
+
+        if (alg.equalsIgnoreCase("HmacSHA256") && builtin()) {
+            HmacSHA256 mac = new HmacSHA256();
+            mac.init(P);
+            pbkdf2(mac, S, c, DK, dkLen, executor);
+        } else {
+            Mac mac = Mac.getInstance(alg);
+            mac.init(new SecretKeySpec(P, alg));
+            pbkdf2(mac, S, c, DK, dkLen, executor);
+        }
+
+        return DK;
+    }
+
+    /**
+     * Whether HMAC-SHA256 may bypass the JCE, true when its preferred provider is SunJCE
+     * or there is none.
+     */
+    static boolean builtin() {
+        Boolean b = builtin;
+        if (b == null) {
+            Provider[] providers = Security.getProviders("Mac.HmacSHA256");
+            builtin = b = providers == null || providers[0].getName().equals("SunJCE");
+        }
+        return b;
+    }
+
+    /**
+     * Native C implementation of PBKDF2 (RFC2898) using HMAC-SHA256.
+     *
+     * @param   P       Password.
+     * @param   S       Salt.
+     * @param   c       Iteration count.
+     * @param   dkLen   Intended length, in octets, of the derived key.
+     *
+     * @return  The derived key.
+     *
+     * @throws  IllegalArgumentException when c is less than 1.
+     */
+    public static native byte[] pbkdf2N(byte[] P, byte[] S, int c, int dkLen);
+
     /**
      * Implementation of PBKDF2 (RFC2898).
      *
@@ -47,41 +135,233 @@ public class PBKDF {
      * @throws  GeneralSecurityException
      */
     public static void pbkdf2(Mac mac, byte[] S, int c, byte[] DK, int dkLen) throws GeneralSecurityException {
-        int hLen = mac.getMacLength();
+        int l = blocks(mac.getMacLength(), c, dkLen);
+
+        for (int i = 1; i <= l; i++) {
+            block(mac, S, c, i, DK, dkLen);
+        }
+    }
+
+    /**
+     * Implementation of PBKDF2 (RFC2898) that computes the blocks of the derived key in
+     * parallel on the supplied executor, each with a clone of mac. Blocks the executor
+     * rejects are computed by the calling thread, which also computes the first block.
+     * When mac cannot be cloned every block is computed by the calling thread.
+     *
+     * @param   mac         Pre-initialized {@link Mac} instance to use.
+     * @param   S           Salt.
+     * @param   c           Iteration count.
+     * @param   DK          Byte array that derived key will be placed in.
+     * @param   dkLen       Intended length, in octets, of the derived key.
+     * @param   executor    Executor to run blocks on.
+     *
+     * @throws  GeneralSecurityException
+     */
+    public static void pbkdf2(final Mac mac, final byte[] S, final int c, final byte[] DK, final int dkLen, Executor executor) throws GeneralSecurityException {
+        int l = blocks(mac.getMacLength(), c, dkLen);
+        if (l == 0) return;
+
+        Block[] blocks = new Block[l];
+
+        try {
+            for (int i = 2; i <= l; i++) {
+                final Mac clone = (Mac) mac.clone();
+                final int n = i;
+                blocks[i - 1] = new Block() {
+                    void compute() throws GeneralSecurityException {
+                        block(clone, S, c, n, DK, dkLen);
+                    }
+                };
+            }
+        } catch (CloneNotSupportedException e) {
+            pbkdf2(mac, S, c, DK, dkLen);
+            return;
+        }
+
+        blocks[0] = new Block() {
+            void compute() throws GeneralSecurityException {
+                block(mac, S, c, 1, DK, dkLen);
+            }
+        };
 
+        run(blocks, executor);
+    }
+
+    /**
+     * Implementation of PBKDF2 (RFC2898) using the built-in {@link HmacSHA256}.
+     *
+     * @param   mac     Pre-initialized {@link HmacSHA256} instance to use.
+     * @param   S       Salt.
+     * @param   c       Iteration count.
+     * @param   DK      Byte array that derived key will be placed in.
+     * @param   dkLen   Intended length, in octets, of the derived key.
+     *
+     * @throws  GeneralSecurityException
+     */
+    public static void pbkdf2(HmacSHA256 mac, byte[] S, int c, byte[] DK, int dkLen) throws GeneralSecurityException {
+        int l = blocks(mac.getMacLength(), c, dkLen);
+
+        for (int i = 1; i <= l; i++) {
+            block(mac, S, c, i, DK, dkLen);
+        }
+    }
+
+    /**
+     * Implementation of PBKDF2 (RFC2898) using the built-in {@link HmacSHA256} that
+     * computes the blocks of the derived key in parallel on the supplied executor, each
+     * with a copy of mac. Blocks the executor rejects are computed by the calling thread,
+     * which also computes the first block.
+     *
+     * @param   mac         Pre-initialized {@link HmacSHA256} instance to use.
+     * @param   S           Salt.
+     * @param   c           Iteration count.
+     * @param   DK          Byte array that derived key will be placed in.
+     * @param   dkLen       Intended length, in octets, of the derived key.
+     * @param   executor    Executor to run blocks on.
+     *
+     * @throws  GeneralSecurityException
+     */
+    public static void pbkdf2(final HmacSHA256 mac, final byte[] S, final int c, final byte[] DK, final int dkLen, Executor executor) throws GeneralSecurityException {
+        int l = blocks(mac.getMacLength(), c, dkLen);
+        if (l == 0) return;
+
+        Block[] blocks = new Block[l];
+
+        for (int i = 1; i <= l; i++) {
+            final HmacSHA256 copy = i == 1 ? mac : new HmacSHA256(mac);
+            final int n = i;
+            blocks[i - 1] = new Block() {
+                void compute() throws GeneralSecurityException {
+                    block(copy, S, c, n, DK, dkLen);
+                }
+            };
+        }
+
+        run(blocks, executor);
+    }
+
+    /**
+     * Number of hLen byte blocks in a dkLen byte derived key, after checking that the
+     * iteration count c is valid.
+     */
+    private static int blocks(int hLen, int c, int dkLen) throws GeneralSecurityException {
+        if (c < 1) throw new IllegalArgumentException("Iteration count must be greater than 0");
         if (dkLen > (Math.pow(2, 32) - 1) * hLen) {
             throw new GeneralSecurityException("Requested key length too long");
         }
+        return (int) Math.ceil((double) dkLen / hLen);
+    }
 
-        byte[] U      = new byte[hLen];
-        byte[] T      = new byte[hLen];
-        byte[] block1 = new byte[S.length + 4];
+    /**
+     * Compute block T_i of the derived key and place it at offset (i - 1) * hLen of DK.
+     */
+    private static void block(Mac mac, byte[] S, int c, int i, byte[] DK, int dkLen) throws GeneralSecurityException {
+        int hLen = mac.getMacLength();
+        byte[] U = new byte[hLen];
+        byte[] T = new byte[hLen];
 
-        int l = (int) Math.ceil((double) dkLen / hLen);
-        int r = dkLen - (l - 1) * hLen;
+        mac.update(S);
+        mac.update((byte) (i >> 24 & 0xff));
+        mac.update((byte) (i >> 16 & 0xff));
+        mac.update((byte) (i >> 8  & 0xff));
+        mac.update((byte) (i >> 0  & 0xff));
+        mac.doFinal(U, 0);
+        arraycopy(U, 0, T, 0, hLen);
 
-        arraycopy(S, 0, block1, 0, S.length);
+        for (int j = 1; j < c; j++) {
+            mac.update(U);
+            mac.doFinal(U, 0);
 
-        for (int i = 1; i <= l; i++) {
-            block1[S.length + 0] = (byte) (i >> 24 & 0xff);
-            block1[S.length + 1] = (byte) (i >> 16 & 0xff);
-            block1[S.length + 2] = (byte) (i >> 8  & 0xff);
-            block1[S.length + 3] = (byte) (i >> 0  & 0xff);
+            for (int k = 0; k < hLen; k++) {
+                T[k] ^= U[k];
+            }
+        }
+
+        arraycopy(T, 0, DK, (i - 1) * hLen, Math.min(hLen, dkLen - (i - 1) * hLen));
+    }
+
+    /**
+     * Compute block T_i of the derived key and place it at offset (i - 1) * hLen of DK.
+     */
+    private static void block(HmacSHA256 mac, byte[] S, int c, int i, byte[] DK, int dkLen) {
+        int hLen = mac.getMacLength();
+        byte[] U = new byte[hLen];
+        byte[] T = new byte[hLen];
+        byte[] count = {
+            (byte) (i >> 24 & 0xff), (byte) (i >> 16 & 0xff), (byte) (i >> 8  & 0xff), (byte) (i >> 0  & 0xff)
+        };
 
-            mac.update(block1);
+        mac.update(S);
+        mac.update(count);
+        mac.doFinal(U, 0);
+        arraycopy(U, 0, T, 0, hLen);
+
+        for (int j = 1; j < c; j++) {
+            mac.update(U);
             mac.doFinal(U, 0);
-            arraycopy(U, 0, T, 0, hLen);
 
-            for (int j = 1; j < c; j++) {
-                mac.update(U);
-                mac.doFinal(U, 0);
+            for (int k = 0; k < hLen; k++) {
+                T[k] ^= U[k];
+            }
+        }
 
-                for (int k = 0; k < hLen; k++) {
-                    T[k] ^= U[k];
-                }
+        arraycopy(T, 0, DK, (i - 1) * hLen, Math.min(hLen, dkLen - (i - 1) * hLen));
+    }
+
+    /**
+     * Run blocks[1..] on the executor, or inline when rejected, and blocks[0] on the calling
+     * thread, then wait for all of them and rethrow the first failure.
+     */
+    private static void run(Block[] blocks, Executor executor) throws GeneralSecurityException {
+        CountDownLatch done = new CountDownLatch(blocks.length - 1);
+
+        for (int i = 1; i < blocks.length; i++) {
+            blocks[i].done = done;
+            try {
+                executor.execute(blocks[i]);
+            } catch (RejectedExecutionException e) {
+                blocks[i].run();
+            }
+        }
+
+        blocks[0].run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
             }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
 
-            arraycopy(T, 0, DK, (i - 1) * hLen, (i == l ? r : hLen));
+        for (Block block : blocks) {
+            Throwable t = block.failure;
+            if (t instanceof GeneralSecurityException) throw (GeneralSecurityException) t;
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+        }
+    }
+
+    /**
+     * Computes one block of the derived key.
+     */
+    private static abstract class Block implements Runnable {
+        private CountDownLatch done;
+        private Throwable failure;
+
+        abstract void compute() throws GeneralSecurityException;
+
+        public void run() {
+            try {
+                compute();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                if (done != null) done.countDown();
+            }
         }
     }
 }
@@ -4,11 +4,16 @@ package com.lambdaworks.crypto;
 
 import com.lambdaworks.jni.*;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
-import static java.lang.Integer.MAX_VALUE;
 import static java.lang.System.arraycopy;
 
 /**
@@ -16,22 +21,270 @@ import static java.lang.System.arraycopy;
  * key derivation function. This class will attempt to load a native library
  * containing the optimized C implementation from
  * <a href="http://www.tarsnap.com/scrypt.html">http://www.tarsnap.com/scrypt.html<a> and
- * fall back to the pure Java version if that fails.
+ * fall back to the pure Java version if that fails. The library is loaded in the background,
+ * see {@link #preload}.
  *
  * @author  Will Glozer
  */
 public class SCrypt {
-    private static final boolean native_library_loaded;
+    static volatile boolean native_library_loaded;
+
+    private static final String policy = System.getProperty("com.lambdaworks.scrypt.backend", "fastest");
+    private static volatile SCryptBackend backend = new SCryptBackend(null, SCryptBackend.Reason.PENDING, null);
+
+    private static final FutureTask<Boolean> loader = new FutureTask<Boolean>(new Callable<Boolean>() {
+        public Boolean call() {
+            backend = load();
+            return native_library_loaded = backend.isNative();
+        }
+    });
+
+    private static volatile SCryptExecutor offload;
 
     static {
-        LibraryLoader loader = LibraryLoaders.loader();
-        native_library_loaded = loader.load("scrypt", true);
+        if (!policy.equals("fastest") && !policy.equals("native") && !policy.equals("java")) {
+            throw new IllegalStateException("Illegal value for com.lambdaworks.scrypt.backend: " + policy);
+        }
+
+        if (!policy.equals("fastest") || "sync".equals(System.getProperty("com.lambdaworks.scrypt.load"))) {
+            loader.run();
+            if (policy.equals("native") && !native_library_loaded) {
+                throw new IllegalStateException("Native scrypt unavailable: " + backend, backend.cause());
+            }
+        } else {
+            Thread t = new Thread(loader, "scrypt-loader");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        String threads = System.getProperty("com.lambdaworks.scrypt.offload");
+        if (threads != null && !threads.equals("false")) {
+            int n = threads.equals("true") ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads);
+            offload = new SCryptExecutor(n, Long.MAX_VALUE, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Load the native library and check that it derives the expected keys for known test
+     * vectors before it is used, so a broken build falls back to the pure Java implementation
+     * instead of deriving wrong keys.
+     */
+    private static SCryptBackend load() {
+        if (policy.equals("java")) return new SCryptBackend(null, SCryptBackend.Reason.DISABLED, null);
+
+        Throwable cause;
+        try {
+            LibraryLoader loader = LibraryLoaders.loader();
+            if (!loader.load("scrypt", true)) {
+                if (!(loader instanceof ReportingLibraryLoader)) {
+                    return new SCryptBackend(null, SCryptBackend.Reason.LOAD_FAILED, null);
+                }
+                cause = ((ReportingLibraryLoader) loader).failure();
+                if (cause == null) return new SCryptBackend(null, SCryptBackend.Reason.DISABLED, null);
+                if (cause instanceof UnsupportedPlatformException) {
+                    return new SCryptBackend(null, SCryptBackend.Reason.UNSUPPORTED_PLATFORM, cause);
+                }
+                if (cause instanceof FileNotFoundException) {
+                    return new SCryptBackend(null, SCryptBackend.Reason.NOT_FOUND, cause);
+                }
+                return new SCryptBackend(null, SCryptBackend.Reason.LOAD_FAILED, cause);
+            }
+        } catch (Throwable e) {
+            return new SCryptBackend(null, SCryptBackend.Reason.LOAD_FAILED, e);
+        }
+
+        try {
+            byte[] P = { 'p', 'a', 's', 's', 'w', 'd' };
+            byte[] S = { 's', 'a', 'l', 't' };
+
+            if (Arrays.equals(scryptN(new byte[0], new byte[0], 16, 1, 1, 64), unhex(SCRYPT_VECTOR))
+                    && Arrays.equals(PBKDF.pbkdf2N(P, S, 1, 64), unhex(PBKDF2_VECTOR))) {
+                arenaCache(System.getProperty("com.lambdaworks.scrypt.arena.cache"));
+                return new SCryptBackend(nativeKernelN(), null, null);
+            }
+            cause = null;
+        } catch (Throwable e) {
+            cause = e;
+        }
+
+        return new SCryptBackend(null, SCryptBackend.Reason.SELF_TEST_FAILED, cause);
+    }
+
+    /**
+     * Apply the limit on the V storage cached by the native library, ignoring a malformed
+     * value rather than rejecting a library that passed its self-test.
+     */
+    private static void arenaCache(String limit) {
+        if (limit == null) return;
+        try {
+            arenaCacheN(Long.parseLong(limit.trim()));
+        } catch (NumberFormatException e) {
+            // keep the default limit
+        }
+    }
+
+    // scrypt("", "", 16, 1, 1, 64) from RFC 7914 and PBKDF2-HMAC-SHA256("passwd", "salt", 1, 64)
+    private static final String SCRYPT_VECTOR = "77d6576238657b203b19ca42c18a0497f16b4844e3074ae8dfdffa3fede21442" +
+            "fcd0069ded0948f8326a753a0fc81f17e8d3e0fb2e0d3628cf35e20c38d18906";
+    private static final String PBKDF2_VECTOR = "55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc" +
+            "49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783";
+
+    private static byte[] unhex(String s) {
+        byte[] b = new byte[s.length() / 2];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+        }
+        return b;
+    }
+
+    /**
+     * The implementation keys are derived with, and the reason the native implementation
+     * is not used when it isn't. Before the native library is loaded the backend is the pure
+     * Java implementation with reason {@link SCryptBackend.Reason#PENDING}, see {@link #preload}.
+     *
+     * The system property {@code com.lambdaworks.scrypt.backend} selects the backend:
+     * {@code fastest}, the default, uses the native library when it loads and passes a
+     * self-test against known vectors and falls back to pure Java otherwise; {@code native}
+     * loads the library while this class is initialized and fails initialization when it is
+     * unavailable; and {@code java} never loads the library.
+     *
+     * @return The backend.
+     */
+    public static SCryptBackend backend() {
+        return backend;
+    }
+
+    /**
+     * Wait for the native library to finish loading. The library is loaded on a
+     * background thread started when this class is initialized, and until it is loaded
+     * keys are derived by the pure Java implementation. Calling this method during startup
+     * ensures the first key derived uses the native implementation when it is available.
+     *
+     * The system property {@code com.lambdaworks.scrypt.load} may be set to {@code sync}
+     * to load the library while this class is initialized instead.
+     *
+     * @return true if the native library was loaded.
+     */
+    public static boolean preload() {
+        loader.run();
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return loader.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            return false;
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run the native calls made by the scrypt and scryptBatch methods on the supplied
+     * executor, blocking the caller until the result is available. A virtual
+     * thread parks while it waits instead of pinning its carrier thread for the duration of
+     * the native call, and the executor's queue and wait time metrics describe the backlog.
+     *
+     * Offloading may also be enabled at startup with the system property
+     * {@code com.lambdaworks.scrypt.offload}, set to {@code true} for one thread per
+     * available processor or to a number of threads.
+     *
+     * @param executor  Executor to run native calls on, or null to run them on the caller.
+     */
+    public static void offload(SCryptExecutor executor) {
+        offload = executor;
+    }
+
+    /**
+     * The executor native calls are offloaded to.
+     *
+     * @return The executor, or null when native calls run on the caller.
+     */
+    public static SCryptExecutor offload() {
+        return offload;
+    }
+
+    /**
+     * Name of the smix kernel the native library selected for this CPU at load time, one of
+     * "scalar", "sse2" or "neon". Batches of eight or more passwords additionally use a
+     * multi-buffer AVX2 kernel where the CPU supports it, see {@link #scryptBatch}.
+     *
+     * @return The kernel name, or null when the native library is not loaded.
+     */
+    public static String nativeKernel() {
+        return backend.kernel();
+    }
+
+    private static native String nativeKernelN();
+
+    /**
+     * Release the V storage the native library keeps cached for the calling thread after
+     * a derivation. Threads that are done deriving keys but live on, such as pooled request
+     * threads, can call this to return the memory without waiting for the thread to exit.
+     *
+     * The cache held by all threads together is limited to 64MB by default. The limit can be
+     * set in bytes with the {@code com.lambdaworks.scrypt.arena.cache} system property or the
+     * {@code SCRYPT_ARENA_CACHE} environment variable, and 0 disables the cache.
+     */
+    public static void releaseArena() {
+        if (native_library_loaded) releaseArenaN();
+    }
+
+    private static native void releaseArenaN();
+
+    private static native void arenaCacheN(long limit);
+
+    /**
+     * A derivation with a native and a pure Java implementation.
+     */
+    private static abstract class Derivation<T> {
+        abstract T nativeImpl() throws GeneralSecurityException;
+        abstract T javaImpl() throws GeneralSecurityException;
+    }
+
+    /**
+     * Run a derivation on the backend selected for every scrypt and scryptBatch method: the
+     * native implementation when the native library was loaded, on the {@link #offload}
+     * executor if one is set, otherwise the pure Java implementation. An offloaded call is
+     * charged the memory of the supplied number of lanes computed at once.
+     */
+    private static <T> T derive(int N, int r, int p, int lanes, int hashes, final Derivation<T> derivation) throws GeneralSecurityException {
+        boolean loaded = native_library_loaded;
+        long start = SCryptMetrics.start(N, r);
+        boolean completed = false;
+
+        try {
+            T result;
+            SCryptExecutor executor = offload;
+
+            if (!loaded) {
+                result = derivation.javaImpl();
+            } else if (executor == null) {
+                result = derivation.nativeImpl();
+            } else {
+                result = executor.call(lanes * SCryptExecutor.memory(N, r, p), new Callable<T>() {
+                    public T call() throws GeneralSecurityException {
+                        return derivation.nativeImpl();
+                    }
+                });
+            }
+
+            completed = true;
+            return result;
+        } finally {
+            SCryptMetrics.end(loaded, N, r, p, start, completed ? hashes : 0);
+        }
     }
 
     /**
      * Implementation of the <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt KDF</a>.
      * Calls the native implementation {@link #scryptN} when the native library was successfully
-     * loaded, otherwise calls {@link #scryptJ}.
+     * loaded, on the {@link #offload} executor if one is set, otherwise calls {@link #scryptJ}.
      *
      * @param passwd    Password.
      * @param salt      Salt.
@@ -44,8 +297,53 @@ public class SCrypt {
      *
      * @throws GeneralSecurityException when HMAC_SHA256 is not available.
      */
-    public static byte[] scrypt(byte[] passwd, byte[] salt, int N, int r, int p, int dkLen) throws GeneralSecurityException {
-        return native_library_loaded ? scryptN(passwd, salt, N, r, p, dkLen) : scryptJ(passwd, salt, N, r, p, dkLen);
+    public static byte[] scrypt(final byte[] passwd, final byte[] salt, final int N, final int r, final int p, final int dkLen) throws GeneralSecurityException {
+        return derive(N, r, p, 1, 1, new Derivation<byte[]>() {
+            byte[] nativeImpl() {
+                return scryptN(passwd, salt, N, r, p, dkLen);
+            }
+
+            byte[] javaImpl() throws GeneralSecurityException {
+                return scryptJ(passwd, salt, N, r, p, dkLen);
+            }
+        });
+    }
+
+    /**
+     * Implementation of the <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt KDF</a> that
+     * computes the p lanes in parallel, each with its own 128 * r * N bytes of storage. When the
+     * native library was loaded the lanes are spread across up to one native thread per available
+     * processor, on the {@link #offload} executor if one is set, otherwise they are run on
+     * the supplied executor.
+     *
+     * The native implementation does not use the executor: it starts up to
+     * min(p, availableProcessors) native threads for each call and joins them before
+     * returning, so its parallelism is not bounded by the executor's size.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param dkLen     Intended length of the derived key.
+     * @param executor  Executor to run lanes on.
+     *
+     * @return The derived key.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available.
+     */
+    public static byte[] scrypt(final byte[] passwd, final byte[] salt, final int N, final int r, final int p, final int dkLen, final Executor executor) throws GeneralSecurityException {
+        final int threads = Math.min(p, Runtime.getRuntime().availableProcessors());
+
+        return derive(N, r, p, threads, 1, new Derivation<byte[]>() {
+            byte[] nativeImpl() {
+                return scryptN(passwd, salt, N, r, p, dkLen, threads);
+            }
+
+            byte[] javaImpl() throws GeneralSecurityException {
+                return scryptJ(passwd, salt, N, r, p, dkLen, executor);
+            }
+        });
     }
 
     /**
@@ -63,6 +361,260 @@ public class SCrypt {
      */
     public static native byte[] scryptN(byte[] passwd, byte[] salt, int N, int r, int p, int dkLen);
 
+    /**
+     * Native C implementation of the <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt KDF</a>
+     * that computes the p lanes on up to the specified number of native threads.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param dkLen     Intended length of the derived key.
+     * @param threads   Maximum number of threads to use.
+     *
+     * @return The derived key.
+     */
+    public static native byte[] scryptN(byte[] passwd, byte[] salt, int N, int r, int p, int dkLen, int threads);
+
+    /**
+     * Implementation of the <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt KDF</a>
+     * that places the derived key in the first dkLen bytes of DK rather than allocating a new
+     * array.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param DK        Byte array that the derived key will be placed in.
+     * @param dkLen     Intended length of the derived key.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available.
+     */
+    public static void scrypt(final byte[] passwd, final byte[] salt, final int N, final int r, final int p, final byte[] DK, final int dkLen) throws GeneralSecurityException {
+        if (dkLen < 0) throw new NegativeArraySizeException("Negative key length");
+        if (DK.length < dkLen) throw new IllegalArgumentException("Derived key array is too small");
+
+        derive(N, r, p, 1, 1, new Derivation<Void>() {
+            Void nativeImpl() {
+                scryptN(passwd, salt, N, r, p, DK, dkLen);
+                return null;
+            }
+
+            Void javaImpl() throws GeneralSecurityException {
+                new SCryptContext(N, r, p).scrypt(passwd, salt, DK, dkLen);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Native C implementation of {@link #scrypt(byte[], byte[], int, int, int, byte[], int)}
+     * that writes the derived key directly into DK.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param DK        Byte array that the derived key will be placed in.
+     * @param dkLen     Intended length of the derived key.
+     */
+    public static native void scryptN(byte[] passwd, byte[] salt, int N, int r, int p, byte[] DK, int dkLen);
+
+    /**
+     * Implementation of the <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt KDF</a>
+     * operating on the bytes between the position and limit of each buffer. The derived key
+     * fills the remaining bytes of DK. The positions of the buffers are not changed.
+     *
+     * When the native library was loaded and all buffers are direct the native code reads
+     * the password and salt from, and writes the derived key to, the buffers' memory without
+     * copying it onto the Java heap.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param DK        Buffer that the derived key will be placed in.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available.
+     */
+    public static void scrypt(final ByteBuffer passwd, final ByteBuffer salt, final int N, final int r, final int p, final ByteBuffer DK) throws GeneralSecurityException {
+        if (DK.isReadOnly()) throw new ReadOnlyBufferException();
+
+        derive(N, r, p, 1, 1, new Derivation<Void>() {
+            Void nativeImpl() throws GeneralSecurityException {
+                if (passwd.isDirect() && salt.isDirect() && DK.isDirect()) {
+                    scryptN(passwd, passwd.position(), passwd.remaining(),
+                            salt, salt.position(), salt.remaining(),
+                            N, r, p, DK, DK.position(), DK.remaining());
+                } else {
+                    scrypt(passwd, salt, N, r, p, DK, true);
+                }
+                return null;
+            }
+
+            Void javaImpl() throws GeneralSecurityException {
+                scrypt(passwd, salt, N, r, p, DK, false);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Derive the key for {@link #scrypt(ByteBuffer, ByteBuffer, int, int, int, ByteBuffer)}
+     * from heap copies of the password and salt.
+     */
+    private static void scrypt(ByteBuffer passwd, ByteBuffer salt, int N, int r, int p, ByteBuffer DK, boolean loaded) throws GeneralSecurityException {
+        byte[] P = new byte[passwd.remaining()];
+        byte[] S = new byte[salt.remaining()];
+        passwd.duplicate().get(P);
+        salt.duplicate().get(S);
+
+        try {
+            byte[] key = loaded ? scryptN(P, S, N, r, p, DK.remaining()) : scryptJ(P, S, N, r, p, DK.remaining());
+            DK.duplicate().put(key);
+            Arrays.fill(key, (byte) 0);
+        } finally {
+            Arrays.fill(P, (byte) 0);
+        }
+    }
+
+    /**
+     * Native C implementation of {@link #scrypt(ByteBuffer, ByteBuffer, int, int, int, ByteBuffer)}
+     * that reads and writes the memory of direct buffers in place.
+     *
+     * @param passwd    Direct buffer containing the password.
+     * @param Poff      Offset of the password in passwd.
+     * @param Plen      Length of the password.
+     * @param salt      Direct buffer containing the salt.
+     * @param Soff      Offset of the salt in salt.
+     * @param Slen      Length of the salt.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param DK        Direct buffer that the derived key will be placed in.
+     * @param DKoff     Offset of the derived key in DK.
+     * @param dkLen     Intended length of the derived key.
+     */
+    private static native void scryptN(ByteBuffer passwd, int Poff, int Plen, ByteBuffer salt, int Soff, int Slen,
+                                       int N, int r, int p, ByteBuffer DK, int DKoff, int dkLen);
+
+    /**
+     * Derive keys for a batch of passwords and salts that share the same cost parameters.
+     * Calls the native implementation {@link #scryptBatchN} when the native library was
+     * successfully loaded, on the {@link #offload} executor if one is set, otherwise calls
+     * {@link #scryptBatchJ}.
+     *
+     * @param passwds   Passwords.
+     * @param salts     Salts, one per password.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param dkLen     Intended length of each derived key.
+     *
+     * @return The derived keys, in the same order as the passwords.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available.
+     */
+    public static byte[][] scryptBatch(byte[][] passwds, byte[][] salts, int N, int r, int p, int dkLen) throws GeneralSecurityException {
+        if (dkLen < 0) throw new NegativeArraySizeException("Negative key length");
+        if (salts.length != passwds.length) throw new IllegalArgumentException("Number of salts and passwords differ");
+        if ((long) passwds.length * dkLen > Integer.MAX_VALUE) throw new IllegalArgumentException("Batch is too large");
+
+        byte[] DK = new byte[passwds.length * dkLen];
+        byte[][] keys = new byte[passwds.length][dkLen];
+
+        scryptBatch(passwds, salts, N, r, p, DK, dkLen);
+
+        for (int i = 0; i < keys.length; i++) {
+            arraycopy(DK, i * dkLen, keys[i], 0, dkLen);
+        }
+        Arrays.fill(DK, (byte) 0);
+
+        return keys;
+    }
+
+    /**
+     * Derive keys for a batch of passwords and salts that share the same cost parameters,
+     * placing the key for password i at offset i * dkLen of DK.
+     *
+     * @param passwds   Passwords.
+     * @param salts     Salts, one per password.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param DK        Byte array that derived keys will be placed in.
+     * @param dkLen     Intended length of each derived key.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available.
+     */
+    public static void scryptBatch(final byte[][] passwds, final byte[][] salts, final int N, final int r, final int p, final byte[] DK, final int dkLen) throws GeneralSecurityException {
+        if (dkLen < 0) throw new NegativeArraySizeException("Negative key length");
+        if (salts.length != passwds.length) throw new IllegalArgumentException("Number of salts and passwords differ");
+        if (DK.length < (long) passwds.length * dkLen) throw new IllegalArgumentException("Derived key array is too small");
+
+        for (int i = 0; i < passwds.length; i++) {
+            if (passwds[i] == null || salts[i] == null) throw new NullPointerException("Null password or salt");
+        }
+
+        // the native AVX2 kernel computes eight keys at once
+        int lanes = passwds.length >= 8 ? 8 : 1;
+
+        derive(N, r, p, lanes, passwds.length, new Derivation<Void>() {
+            Void nativeImpl() {
+                scryptBatchN(passwds, salts, N, r, p, DK, dkLen);
+                return null;
+            }
+
+            Void javaImpl() throws GeneralSecurityException {
+                scryptBatchJ(passwds, salts, N, r, p, DK, dkLen);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Native C implementation of {@link #scryptBatch} that crosses into native code once
+     * and allocates storage for V and XY once for the whole batch.
+     *
+     * @param passwds   Passwords.
+     * @param salts     Salts, one per password.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param DK        Byte array that derived keys will be placed in.
+     * @param dkLen     Intended length of each derived key.
+     */
+    public static native void scryptBatchN(byte[][] passwds, byte[][] salts, int N, int r, int p, byte[] DK, int dkLen);
+
+    /**
+     * Pure Java implementation of {@link #scryptBatch} that reuses a single {@link SCryptContext}
+     * for the whole batch.
+     *
+     * @param passwds   Passwords.
+     * @param salts     Salts, one per password.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param DK        Byte array that derived keys will be placed in.
+     * @param dkLen     Intended length of each derived key.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available.
+     */
+    public static void scryptBatchJ(byte[][] passwds, byte[][] salts, int N, int r, int p, byte[] DK, int dkLen) throws GeneralSecurityException {
+        SCryptContext ctx = new SCryptContext(N, r, p);
+        byte[] key = new byte[dkLen];
+
+        for (int i = 0; i < passwds.length; i++) {
+            ctx.scrypt(passwds[i], salts[i], key, dkLen);
+            arraycopy(key, 0, DK, i * dkLen, dkLen);
+        }
+        Arrays.fill(key, (byte) 0);
+    }
+
     /**
      * Pure Java implementation of the <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt KDF</a>.
      *
@@ -78,30 +630,194 @@ public class SCrypt {
      * @throws GeneralSecurityException when HMAC_SHA256 is not available.
      */
     public static byte[] scryptJ(byte[] passwd, byte[] salt, int N, int r, int p, int dkLen) throws GeneralSecurityException {
-        if (N < 2 || (N & (N - 1)) != 0) throw new IllegalArgumentException("N must be a power of 2 greater than 1");
+        return new SCryptContext(N, r, p).scrypt(passwd, salt, dkLen);
+    }
 
-        if (N > MAX_VALUE / 128 / r) throw new IllegalArgumentException("Parameter N is too large");
-        if (r > MAX_VALUE / 128 / p) throw new IllegalArgumentException("Parameter r is too large");
+    /**
+     * Pure Java implementation of the <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt KDF</a>
+     * that computes the p lanes in parallel on the supplied executor.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param dkLen     Intended length of the derived key.
+     * @param executor  Executor to run lanes on.
+     *
+     * @return The derived key.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available.
+     */
+    public static byte[] scryptJ(byte[] passwd, byte[] salt, int N, int r, int p, int dkLen, Executor executor) throws GeneralSecurityException {
+        return new SCryptContext(N, r, p).scrypt(passwd, salt, dkLen, executor);
+    }
+
+    /**
+     * Compute B = SMix_r(B, N) on 32-bit little-endian words. The temporary storage V
+     * must be 32rN words in length and XY must be 64r + 16 words in length. No objects
+     * are allocated.
+     *
+     * @param B     Words of the block to mix.
+     * @param Bi    Offset of the block in B.
+     * @param r     Memory cost parameter.
+     * @param N     CPU cost parameter.
+     * @param V     Temporary storage.
+     * @param XY    Temporary storage.
+     */
+    public static void smix(int[] B, int Bi, int r, int N, int[] V, int[] XY) {
+        arraycopy(B, Bi, XY, 0, 32 * r);
+        smix_steps(XY, r, N, V, 0, 2 * N);
+        arraycopy(XY, 0, B, Bi, 32 * r);
+    }
+
+    /**
+     * Run iterations [from, to) of the 2N BlockMix iterations of SMix_r on the block X held
+     * in the first 32r words of XY. Iterations below N fill V, the rest read from it. Both
+     * from and to must be even, and running [0, 2N) in any number of pieces is equivalent
+     * to a single call to {@link #smix(int[], int, int, int, int[], int[])}.
+     *
+     * @param XY    Temporary storage, X in the first 32r words.
+     * @param r     Memory cost parameter.
+     * @param N     CPU cost parameter.
+     * @param V     Temporary storage.
+     * @param from  First iteration to run.
+     * @param to    Iteration to stop before.
+     */
+    public static void smix_steps(int[] XY, int r, int N, int[] V, int from, int to) {
+        int Xi = 0;
+        int Yi = 32 * r;
+        int Zi = 64 * r;
+        int i, j;
 
-        Mac mac = Mac.getInstance("HmacSHA256");
-        mac.init(new SecretKeySpec(passwd, "HmacSHA256"));
+        for (i = from; i < to && i < N; i += 2) {
+            arraycopy(XY, Xi, V, i * (32 * r), 32 * r);
+            blockmix_salsa8(XY, Xi, Yi, Zi, r);
 
-        byte[] DK = new byte[dkLen];
+            arraycopy(XY, Yi, V, (i + 1) * (32 * r), 32 * r);
+            blockmix_salsa8(XY, Yi, Xi, Zi, r);
+        }
+
+        for (; i < to; i += 2) {
+            j = integerify(XY, Xi, r) & (N - 1);
+            blockxor(V, j * (32 * r), XY, Xi, 32 * r);
+            blockmix_salsa8(XY, Xi, Yi, Zi, r);
 
-        byte[] B  = new byte[128 * r * p];
-        byte[] XY = new byte[256 * r];
-        byte[] V  = new byte[128 * r * N];
+            j = integerify(XY, Yi, r) & (N - 1);
+            blockxor(V, j * (32 * r), XY, Yi, 32 * r);
+            blockmix_salsa8(XY, Yi, Xi, Zi, r);
+        }
+    }
+
+    /**
+     * Compute BlockMix_{salsa20/8, r} of the 32r words at Bi and store the result at Yi,
+     * using the 16 words at Xi as temporary storage.
+     *
+     * @param BY    Words of the input, output, and temporary blocks.
+     * @param Bi    Offset of the input block.
+     * @param Yi    Offset of the output block.
+     * @param Xi    Offset of the temporary block.
+     * @param r     Memory cost parameter.
+     */
+    public static void blockmix_salsa8(int[] BY, int Bi, int Yi, int Xi, int r) {
+        int i;
+
+        arraycopy(BY, Bi + (2 * r - 1) * 16, BY, Xi, 16);
+
+        for (i = 0; i < 2 * r; i += 2) {
+            blockxor(BY, Bi + i * 16, BY, Xi, 16);
+            salsa20_8(BY, Xi);
+            arraycopy(BY, Xi, BY, Yi + i * 8, 16);
+
+            blockxor(BY, Bi + i * 16 + 16, BY, Xi, 16);
+            salsa20_8(BY, Xi);
+            arraycopy(BY, Xi, BY, Yi + i * 8 + r * 16, 16);
+        }
+    }
+
+    /**
+     * Apply the salsa20/8 core to the 16 words at Bi.
+     *
+     * @param B     Words of the block.
+     * @param Bi    Offset of the block in B.
+     */
+    public static void salsa20_8(int[] B, int Bi) {
+        int x0  = B[Bi +  0], x1  = B[Bi +  1], x2  = B[Bi +  2], x3  = B[Bi +  3];
+        int x4  = B[Bi +  4], x5  = B[Bi +  5], x6  = B[Bi +  6], x7  = B[Bi +  7];
+        int x8  = B[Bi +  8], x9  = B[Bi +  9], x10 = B[Bi + 10], x11 = B[Bi + 11];
+        int x12 = B[Bi + 12], x13 = B[Bi + 13], x14 = B[Bi + 14], x15 = B[Bi + 15];
         int i;
 
-        PBKDF.pbkdf2(mac, salt, 1, B, p * 128 * r);
+        for (i = 8; i > 0; i -= 2) {
+            x4  ^= R(x0 +x12, 7);  x8  ^= R(x4 +x0 , 9);
+            x12 ^= R(x8 +x4 ,13);  x0  ^= R(x12+x8 ,18);
+            x9  ^= R(x5 +x1 , 7);  x13 ^= R(x9 +x5 , 9);
+            x1  ^= R(x13+x9 ,13);  x5  ^= R(x1 +x13,18);
+            x14 ^= R(x10+x6 , 7);  x2  ^= R(x14+x10, 9);
+            x6  ^= R(x2 +x14,13);  x10 ^= R(x6 +x2 ,18);
+            x3  ^= R(x15+x11, 7);  x7  ^= R(x3 +x15, 9);
+            x11 ^= R(x7 +x3 ,13);  x15 ^= R(x11+x7 ,18);
+            x1  ^= R(x0 +x3 , 7);  x2  ^= R(x1 +x0 , 9);
+            x3  ^= R(x2 +x1 ,13);  x0  ^= R(x3 +x2 ,18);
+            x6  ^= R(x5 +x4 , 7);  x7  ^= R(x6 +x5 , 9);
+            x4  ^= R(x7 +x6 ,13);  x5  ^= R(x4 +x7 ,18);
+            x11 ^= R(x10+x9 , 7);  x8  ^= R(x11+x10, 9);
+            x9  ^= R(x8 +x11,13);  x10 ^= R(x9 +x8 ,18);
+            x12 ^= R(x15+x14, 7);  x13 ^= R(x12+x15, 9);
+            x14 ^= R(x13+x12,13);  x15 ^= R(x14+x13,18);
+        }
+
+        B[Bi +  0] += x0;   B[Bi +  1] += x1;   B[Bi +  2] += x2;   B[Bi +  3] += x3;
+        B[Bi +  4] += x4;   B[Bi +  5] += x5;   B[Bi +  6] += x6;   B[Bi +  7] += x7;
+        B[Bi +  8] += x8;   B[Bi +  9] += x9;   B[Bi + 10] += x10;  B[Bi + 11] += x11;
+        B[Bi + 12] += x12;  B[Bi + 13] += x13;  B[Bi + 14] += x14;  B[Bi + 15] += x15;
+    }
 
-        for (i = 0; i < p; i++) {
-            smix(B, i * 128 * r, r, N, V, XY);
+    public static void blockxor(int[] S, int Si, int[] D, int Di, int len) {
+        for (int i = 0; i < len; i++) {
+            D[Di + i] ^= S[Si + i];
         }
+    }
+
+    public static int integerify(int[] B, int Bi, int r) {
+        return B[Bi + (2 * r - 1) * 16];
+    }
 
-        PBKDF.pbkdf2(mac, B, 1, DK, dkLen);
+    /**
+     * Decode little-endian bytes to 32-bit words.
+     *
+     * @param src       Source bytes.
+     * @param srcPos    Offset in the source bytes.
+     * @param dest      Destination words.
+     * @param destPos   Offset in the destination words.
+     * @param length    Number of words to decode.
+     */
+    public static void le32dec(byte[] src, int srcPos, int[] dest, int destPos, int length) {
+        for (int i = 0; i < length; i++, srcPos += 4) {
+            dest[destPos + i] = (src[srcPos + 0] & 0xff) <<  0
+                              | (src[srcPos + 1] & 0xff) <<  8
+                              | (src[srcPos + 2] & 0xff) << 16
+                              | (src[srcPos + 3] & 0xff) << 24;
+        }
+    }
 
-        return DK;
+    /**
+     * Encode 32-bit words as little-endian bytes.
+     *
+     * @param src       Source words.
+     * @param srcPos    Offset in the source words.
+     * @param dest      Destination bytes.
+     * @param destPos   Offset in the destination bytes.
+     * @param length    Number of words to encode.
+     */
+    public static void le32enc(int[] src, int srcPos, byte[] dest, int destPos, int length) {
+        for (int i = 0; i < length; i++, destPos += 4) {
+            int w = src[srcPos + i];
+            dest[destPos + 0] = (byte) (w >>  0 & 0xff);
+            dest[destPos + 1] = (byte) (w >>  8 & 0xff);
+            dest[destPos + 2] = (byte) (w >> 16 & 0xff);
+            dest[destPos + 3] = (byte) (w >> 24 & 0xff);
+        }
     }
 
     public static void smix(byte[] B, int Bi, int r, int N, byte[] V, byte[] XY) {
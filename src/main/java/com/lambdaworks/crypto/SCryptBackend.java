@@ -0,0 +1,94 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+/**
+ * The implementation {@link SCrypt} derives keys with, and when it is the pure Java
+ * implementation, the reason the native implementation is not used. See
+ * {@link SCrypt#backend}.
+ *
+ * @author  agent
+ */
+public class SCryptBackend {
+    /**
+     * Reasons the pure Java implementation is used.
+     */
+    public enum Reason {
+        /** The native library is disabled by configuration. */
+        DISABLED,
+        /** The native library is still being loaded. */
+        PENDING,
+        /** The CPU architecture or operating system is not recognized. */
+        UNSUPPORTED_PLATFORM,
+        /** There is no native library for this platform. */
+        NOT_FOUND,
+        /** The native library could not be verified or loaded. */
+        LOAD_FAILED,
+        /** The native library derived the wrong key for a known test vector. */
+        SELF_TEST_FAILED
+    }
+
+    private final String kernel;
+    private final Reason reason;
+    private final Throwable cause;
+
+    SCryptBackend(String kernel, Reason reason, Throwable cause) {
+        this.kernel = kernel;
+        this.reason = reason;
+        this.cause  = cause;
+    }
+
+    /**
+     * Whether keys are derived by the native implementation.
+     *
+     * @return true for the native implementation.
+     */
+    public boolean isNative() {
+        return reason == null;
+    }
+
+    /**
+     * Name of the implementation.
+     *
+     * @return {@link SCryptMetrics#NATIVE} or {@link SCryptMetrics#JAVA}.
+     */
+    public String name() {
+        return isNative() ? SCryptMetrics.NATIVE : SCryptMetrics.JAVA;
+    }
+
+    /**
+     * Name of the native smix kernel, see {@link SCrypt#nativeKernel}.
+     *
+     * @return The kernel name, or null for the pure Java implementation.
+     */
+    public String kernel() {
+        return kernel;
+    }
+
+    /**
+     * Why the pure Java implementation is used.
+     *
+     * @return The reason, or null for the native implementation.
+     */
+    public Reason reason() {
+        return reason;
+    }
+
+    /**
+     * The error that caused the native implementation to be rejected.
+     *
+     * @return The error, or null.
+     */
+    public Throwable cause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        if (isNative()) return name() + " (" + kernel + ")";
+
+        StringBuilder sb = new StringBuilder(name()).append(": ").append(reason);
+        if (cause != null) sb.append(": ").append(cause);
+        return sb.toString();
+    }
+}
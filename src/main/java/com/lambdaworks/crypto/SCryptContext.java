@@ -0,0 +1,253 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.lang.Integer.MAX_VALUE;
+import static com.lambdaworks.crypto.SCrypt.*;
+
+/**
+ * Pure Java <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt</a> context for a
+ * fixed set of cost parameters. The context owns the B, XY, and V buffers needed to derive
+ * a key and reuses them for every call, so repeated hashing with the same parameters does
+ * not allocate a new 128 * r * N byte V array each time.
+ *
+ * Lanes may be computed in parallel on an {@link Executor}, in which case every lane other
+ * than the first allocates its own V and XY for the duration of the call, so a pooled
+ * context never retains more than one V.
+ *
+ * The password-derived contents of B and the keyed HMAC are cleared at the end of each
+ * call, and V and XY when the context is returned to a {@link SCryptContextPool}.
+ *
+ * Instances are not thread-safe, use a {@link SCryptContextPool} to share them between
+ * threads.
+ *
+ * @author  agent
+ */
+public class SCryptContext {
+    public final int N;
+    public final int r;
+    public final int p;
+
+    private final SCryptMac mac;
+    private final byte[] B;
+    private final int[] B32;
+    private final int[] XY;
+    private final int[] V;
+
+    /**
+     * Allocate a new context for the supplied cost parameters.
+     *
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available from a preferred
+     *         JCE provider other than SunJCE.
+     */
+    public SCryptContext(int N, int r, int p) throws GeneralSecurityException {
+        if (N < 2 || (N & (N - 1)) != 0) throw new IllegalArgumentException("N must be a power of 2 greater than 1");
+
+        if (N > MAX_VALUE / 128 / r) throw new IllegalArgumentException("Parameter N is too large");
+        if (r > MAX_VALUE / 128 / p) throw new IllegalArgumentException("Parameter r is too large");
+
+        this.N = N;
+        this.r = r;
+        this.p = p;
+
+        this.mac = new SCryptMac();
+        this.B   = new byte[128 * r * p];
+        this.B32 = new int[32 * r * p];
+        this.XY  = new int[64 * r + 16];
+        this.V   = new int[32 * r * N];
+    }
+
+    /**
+     * Derive a key from the supplied password and salt.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param dkLen     Intended length of the derived key.
+     *
+     * @return The derived key.
+     *
+     * @throws GeneralSecurityException when thrown by a preferred JCE provider of HMAC_SHA256
+     *         other than SunJCE.
+     */
+    public byte[] scrypt(byte[] passwd, byte[] salt, int dkLen) throws GeneralSecurityException {
+        byte[] DK = new byte[dkLen];
+        scrypt(passwd, salt, DK, dkLen);
+        return DK;
+    }
+
+    /**
+     * Derive a key from the supplied password and salt.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param DK        Byte array that derived key will be placed in.
+     * @param dkLen     Intended length of the derived key.
+     *
+     * @throws GeneralSecurityException when thrown by a preferred JCE provider of HMAC_SHA256
+     *         other than SunJCE.
+     */
+    public void scrypt(byte[] passwd, byte[] salt, byte[] DK, int dkLen) throws GeneralSecurityException {
+        int i;
+
+        try {
+            mac.init(passwd);
+
+            mac.pbkdf2(salt, B, p * 128 * r);
+            le32dec(B, 0, B32, 0, 32 * r * p);
+
+            for (i = 0; i < p; i++) {
+                smix(B32, i * 32 * r, r, N, V, XY);
+            }
+
+            le32enc(B32, 0, B, 0, 32 * r * p);
+            mac.pbkdf2(B, DK, dkLen);
+        } finally {
+            clearState();
+        }
+    }
+
+    /**
+     * Derive a key from the supplied password and salt, computing the p lanes in
+     * parallel on the supplied executor. Lanes the executor rejects are computed
+     * by the calling thread, which also computes the first lane.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param dkLen     Intended length of the derived key.
+     * @param executor  Executor to run lanes on.
+     *
+     * @return The derived key.
+     *
+     * @throws GeneralSecurityException when thrown by a preferred JCE provider of HMAC_SHA256
+     *         other than SunJCE.
+     */
+    public byte[] scrypt(byte[] passwd, byte[] salt, int dkLen, Executor executor) throws GeneralSecurityException {
+        byte[] DK = new byte[dkLen];
+        scrypt(passwd, salt, DK, dkLen, executor);
+        return DK;
+    }
+
+    /**
+     * Derive a key from the supplied password and salt, computing the p lanes in
+     * parallel on the supplied executor. Lanes the executor rejects are computed
+     * by the calling thread, which also computes the first lane. Each lane other than
+     * the first allocates 128 * r * N bytes for its V while it runs.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param DK        Byte array that derived key will be placed in.
+     * @param dkLen     Intended length of the derived key.
+     * @param executor  Executor to run lanes on.
+     *
+     * @throws GeneralSecurityException when thrown by a preferred JCE provider of HMAC_SHA256
+     *         other than SunJCE.
+     */
+    public void scrypt(byte[] passwd, byte[] salt, byte[] DK, int dkLen, Executor executor) throws GeneralSecurityException {
+        int i;
+
+        try {
+            mac.init(passwd);
+
+            mac.pbkdf2(salt, B, p * 128 * r);
+            le32dec(B, 0, B32, 0, 32 * r * p);
+
+            CountDownLatch done = new CountDownLatch(p - 1);
+            Lane[] lanes = new Lane[p];
+
+            for (i = 1; i < p; i++) {
+                lanes[i] = new Lane(i, done);
+                try {
+                    executor.execute(lanes[i]);
+                } catch (RejectedExecutionException e) {
+                    lanes[i].run();
+                }
+            }
+
+            lanes[0] = new Lane(0, null);
+            lanes[0].run();
+
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+
+            for (Lane lane : lanes) {
+                Throwable t = lane.failure;
+                if (t instanceof RuntimeException) throw (RuntimeException) t;
+                if (t instanceof Error) throw (Error) t;
+            }
+
+            le32enc(B32, 0, B, 0, 32 * r * p);
+            mac.pbkdf2(B, DK, dkLen);
+        } finally {
+            clearState();
+        }
+    }
+
+    /**
+     * Zero B and clear the keyed HMAC state.
+     */
+    private void clearState() {
+        Arrays.fill(B, (byte) 0);
+        Arrays.fill(B32, 0);
+        mac.clear();
+    }
+
+    /**
+     * Zero all buffers holding password-derived data, including V and XY.
+     */
+    void clear() {
+        clearState();
+        Arrays.fill(V, 0);
+        Arrays.fill(XY, 0);
+    }
+
+    /**
+     * Computes B_i = SMix_r(B_i, N) for a single lane. The first lane uses the context's
+     * storage, the others allocate their own and zero it when done.
+     */
+    private class Lane implements Runnable {
+        private final int i;
+        private final CountDownLatch done;
+        private Throwable failure;
+
+        Lane(int i, CountDownLatch done) {
+            this.i    = i;
+            this.done = done;
+        }
+
+        public void run() {
+            int[] V  = null;
+            int[] XY = null;
+            try {
+                V  = i == 0 ? SCryptContext.this.V  : new int[32 * r * N];
+                XY = i == 0 ? SCryptContext.this.XY : new int[64 * r + 16];
+                smix(B32, i * 32 * r, r, N, V, XY);
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                if (i != 0) {
+                    if (V != null) Arrays.fill(V, 0);
+                    if (XY != null) Arrays.fill(XY, 0);
+                }
+                if (done != null) done.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+import java.security.GeneralSecurityException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A thread-safe pool of {@link SCryptContext} instances with identical cost parameters.
+ * Contexts are created on demand up to the pool capacity, after which callers block
+ * until a context is released, bounding the memory used for scrypt buffers to roughly
+ * capacity * 128 * r * N bytes.
+ *
+ * @author  agent
+ */
+public class SCryptContextPool {
+    public final int N;
+    public final int r;
+    public final int p;
+
+    private final Semaphore permits;
+    private final BlockingQueue<SCryptContext> idle;
+    private final Set<SCryptContext> acquired;
+
+    /**
+     * Create a new pool.
+     *
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param capacity  Maximum number of contexts.
+     */
+    public SCryptContextPool(int N, int r, int p, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be greater than 0");
+
+        this.N = N;
+        this.r = r;
+        this.p = p;
+
+        this.permits  = new Semaphore(capacity, true);
+        this.idle     = new ArrayBlockingQueue<SCryptContext>(capacity);
+        this.acquired = Collections.synchronizedSet(
+                Collections.newSetFromMap(new IdentityHashMap<SCryptContext, Boolean>()));
+    }
+
+    /**
+     * Take a context from the pool, creating one if none are idle and the pool
+     * is below capacity. The context must be returned with {@link #release}.
+     *
+     * @return A context for exclusive use by the caller.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available.
+     * @throws InterruptedException when interrupted waiting for a context.
+     */
+    public SCryptContext acquire() throws GeneralSecurityException, InterruptedException {
+        permits.acquire();
+
+        SCryptContext ctx = idle.poll();
+        if (ctx != null) {
+            acquired.add(ctx);
+            return ctx;
+        }
+
+        boolean created = false;
+        try {
+            ctx = new SCryptContext(N, r, p);
+            acquired.add(ctx);
+            created = true;
+            return ctx;
+        } finally {
+            if (!created) permits.release();
+        }
+    }
+
+    /**
+     * Return a context previously obtained from {@link #acquire}, zeroing its buffers.
+     *
+     * @param ctx   Context to return.
+     *
+     * @throws IllegalStateException when the context is not currently acquired from this pool.
+     */
+    public void release(SCryptContext ctx) {
+        if (!acquired.remove(ctx)) throw new IllegalStateException("Context not acquired from this pool");
+        ctx.clear();
+        idle.offer(ctx);
+        permits.release();
+    }
+
+    /**
+     * Derive a key using a pooled context.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param dkLen     Intended length of the derived key.
+     *
+     * @return The derived key.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available.
+     * @throws InterruptedException when interrupted waiting for a context.
+     */
+    public byte[] scrypt(byte[] passwd, byte[] salt, int dkLen) throws GeneralSecurityException, InterruptedException {
+        SCryptContext ctx = acquire();
+        try {
+            return ctx.scrypt(passwd, salt, dkLen);
+        } finally {
+            release(ctx);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A dedicated executor for scrypt computations that bounds the memory they use.
+ *
+ * Each task is charged the bytes of scratch storage its cost parameters require, see
+ * {@link #memory}. A task is only handed to a thread once a thread is idle and its charge
+ * fits in the memory budget together with every running task; until then it waits in a
+ * bounded FIFO queue without occupying a thread. When the queue is full new tasks are
+ * rejected with a {@link RejectedExecutionException}, so a burst of requests fails fast
+ * instead of exhausting memory or piling up latency.
+ *
+ * @author  agent
+ */
+public class SCryptExecutor {
+    private static final ThreadLocal<SCryptExecutor> current = new ThreadLocal<SCryptExecutor>();
+
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final long budget;
+    private final int capacity;
+
+    private final Queue<Task<?>> pending = new ArrayDeque<Task<?>>();
+    private long inUse;
+    private int running;
+    private boolean shutdown;
+
+    private final AtomicLong started  = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private final AtomicLong maxWait  = new AtomicLong();
+
+    /**
+     * Create a new executor.
+     *
+     * @param threads   Number of threads computing scrypt.
+     * @param budget    Maximum bytes of scratch storage in use at once.
+     * @param queue     Maximum number of tasks waiting to start.
+     */
+    public SCryptExecutor(int threads, long budget, int queue) {
+        if (threads < 1) throw new IllegalArgumentException("Threads must be greater than 0");
+        if (budget < 1024) throw new IllegalArgumentException("Budget must be at least 1024 bytes");
+        if (queue < 1) throw new IllegalArgumentException("Queue must be greater than 0");
+
+        this.threads  = threads;
+        this.budget   = budget;
+        this.capacity = queue;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory());
+    }
+
+    /**
+     * Bytes of scratch storage charged for one scrypt computation with the supplied
+     * cost parameters.
+     *
+     * @param N     CPU cost parameter.
+     * @param r     Memory cost parameter.
+     * @param p     Parallelization parameter.
+     *
+     * @return The number of bytes.
+     */
+    public static long memory(int N, int r, int p) {
+        return 128L * r * ((long) N + p + 2);
+    }
+
+    /**
+     * Submit a task that computes scrypt with the supplied cost parameters.
+     *
+     * @param N     CPU cost parameter.
+     * @param r     Memory cost parameter.
+     * @param p     Parallelization parameter.
+     * @param task  Task to run once memory is available.
+     *
+     * @return A future for the result of the task.
+     *
+     * @throws RejectedExecutionException when the queue is full, the executor has been
+     *         shut down, or the task alone exceeds the memory budget.
+     */
+    public <T> Future<T> submit(int N, int r, int p, Callable<T> task) {
+        return submit(memory(N, r, p), task);
+    }
+
+    /**
+     * Submit a task charged the supplied bytes of scratch storage.
+     */
+    <T> Future<T> submit(long bytes, Callable<T> task) {
+        if (bytes > budget) throw new RejectedExecutionException("Task requires more memory than the budget");
+
+        Task<T> future = new Task<T>(task, bytes);
+
+        synchronized (this) {
+            if (shutdown) throw new RejectedExecutionException("Executor has been shut down");
+            if (pending.isEmpty() && admissible(bytes)) {
+                dispatch(future);
+            } else if (pending.size() < capacity) {
+                pending.add(future);
+            } else {
+                throw new RejectedExecutionException("Queue is full");
+            }
+        }
+
+        return future;
+    }
+
+    private boolean admissible(long bytes) {
+        return running < threads && bytes <= budget - inUse;
+    }
+
+    private void dispatch(Task<?> task) {
+        inUse += task.bytes;
+        running++;
+        executor.execute(task);
+    }
+
+    /**
+     * Return a finished task's memory and thread, and dispatch the queued tasks that
+     * now fit, in order.
+     */
+    private synchronized void finished(Task<?> task) {
+        inUse -= task.bytes;
+        running--;
+
+        while (!pending.isEmpty() && admissible(pending.peek().bytes)) {
+            dispatch(pending.poll());
+        }
+
+        if (shutdown && pending.isEmpty()) executor.shutdown();
+    }
+
+    /**
+     * Run a task that computes scrypt with the supplied cost parameters on this executor
+     * and wait for its result. The calling thread blocks in {@link Future#get} rather than
+     * in the computation, so a virtual thread unmounts from its carrier while it waits.
+     * Tasks called from a thread already running a task on any {@code SCryptExecutor} run
+     * directly on that thread. Interrupts do not stop the wait, the interrupt status is
+     * restored afterwards.
+     *
+     * @param N     CPU cost parameter.
+     * @param r     Memory cost parameter.
+     * @param p     Parallelization parameter.
+     * @param task  Task to run once memory is available.
+     *
+     * @return The result of the task.
+     *
+     * @throws GeneralSecurityException when thrown by the task.
+     * @throws RejectedExecutionException when the queue is full, the executor has been
+     *         shut down, or the task alone exceeds the memory budget.
+     */
+    public <T> T call(int N, int r, int p, Callable<T> task) throws GeneralSecurityException {
+        return call(memory(N, r, p), task);
+    }
+
+    /**
+     * Run a task charged the supplied bytes of scratch storage and wait for its result.
+     */
+    <T> T call(long bytes, Callable<T> task) throws GeneralSecurityException {
+        Future<T> future;
+
+        try {
+            if (current.get() != null) return task.call();
+            future = submit(bytes, task);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof GeneralSecurityException) throw (GeneralSecurityException) t;
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            throw new IllegalStateException(t);
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private void waited(long nanos) {
+        started.incrementAndGet();
+        waitTime.addAndGet(nanos);
+
+        long max;
+        while (nanos > (max = maxWait.get()) && !maxWait.compareAndSet(max, nanos));
+    }
+
+    /**
+     * Bytes of scratch storage charged to running tasks.
+     *
+     * @return The number of bytes.
+     */
+    public synchronized long memoryInUse() {
+        return inUse;
+    }
+
+    /**
+     * Number of tasks waiting to start.
+     *
+     * @return The queue length.
+     */
+    public synchronized int queued() {
+        return pending.size();
+    }
+
+    /**
+     * Number of tasks that have started running.
+     *
+     * @return The number of tasks.
+     */
+    public long started() {
+        return started.get();
+    }
+
+    /**
+     * Total time tasks spent queued and waiting for memory before they started.
+     *
+     * @param unit  Unit of the result.
+     *
+     * @return The total wait time.
+     */
+    public long waitTime(TimeUnit unit) {
+        return unit.convert(waitTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Longest time a task spent queued and waiting for memory before it started.
+     *
+     * @param unit  Unit of the result.
+     *
+     * @return The maximum wait time.
+     */
+    public long maxWaitTime(TimeUnit unit) {
+        return unit.convert(maxWait.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop accepting tasks. Tasks already submitted run to completion.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (pending.isEmpty()) executor.shutdown();
+    }
+
+    /**
+     * A queued task that returns its memory and thread before its result becomes visible,
+     * or once it has run when it was cancelled while queued.
+     */
+    private class Task<T> extends FutureTask<T> {
+        final long bytes;
+        final long submitted = System.nanoTime();
+        private boolean finished;
+
+        Task(Callable<T> task, long bytes) {
+            super(task);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void run() {
+            try {
+                waited(System.nanoTime() - submitted);
+                current.set(SCryptExecutor.this);
+                super.run();
+            } finally {
+                finish();
+            }
+        }
+
+        @Override
+        protected void set(T value) {
+            finish();
+            super.set(value);
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            finish();
+            super.setException(t);
+        }
+
+        private void finish() {
+            if (finished) return;
+            finished = true;
+            current.remove();
+            finished(this);
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private static final AtomicInteger pool = new AtomicInteger();
+        private final AtomicInteger count = new AtomicInteger();
+        private final int id = pool.incrementAndGet();
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "scrypt-" + id + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+import com.lambdaworks.codec.Base64;
+
+/**
+ * Parser and formatter for the <code>$s0$PARAMS$SALT$KEY</code> format described in
+ * {@link SCryptUtil} that decode into, and encode from, caller supplied buffers without
+ * allocating. Input is validated as it is parsed, so a malformed hash is rejected before
+ * any memory-hard work starts.
+ *
+ * The PARAMS field is returned in its packed form, use {@link #N}, {@link #r}, and
+ * {@link #p} to unpack it.
+ *
+ * @author  agent
+ */
+public class SCryptFormat {
+    private SCryptFormat() {
+    }
+
+    /**
+     * Parse a hash, decoding its salt and key into the supplied buffers, which must
+     * match the length of the decoded salt and key exactly, see {@link #saltLength} and
+     * {@link #keyLength}. The salt and key may be base64 encoded with or without padding.
+     *
+     * @param hashed    scrypt hashed password.
+     * @param salt      Buffer the salt will be placed in.
+     * @param key       Buffer the derived key will be placed in.
+     *
+     * @return The packed PARAMS field.
+     *
+     * @throws IllegalArgumentException when the hash is malformed.
+     */
+    public static int parse(CharSequence hashed, byte[] salt, byte[] key) {
+        return parse(hashed, null, 0, hashed.length(), salt, key);
+    }
+
+    /**
+     * Parse an ASCII encoded hash, see {@link #parse(CharSequence, byte[], byte[])}.
+     *
+     * @param hashed    scrypt hashed password.
+     * @param off       Offset of the hash in hashed.
+     * @param len       Length of the hash.
+     * @param salt      Buffer the salt will be placed in.
+     * @param key       Buffer the derived key will be placed in.
+     *
+     * @return The packed PARAMS field.
+     *
+     * @throws IllegalArgumentException when the hash is malformed.
+     */
+    public static int parse(byte[] hashed, int off, int len, byte[] salt, byte[] key) {
+        if (off < 0 || len < 0 || off > hashed.length - len) throw new ArrayIndexOutOfBoundsException();
+        return parse(null, hashed, off, off + len, salt, key);
+    }
+
+    private static int parse(CharSequence cs, byte[] bs, int start, int end, byte[] salt, byte[] key) {
+        if (end - start < 4 || at(cs, bs, start) != '$' || at(cs, bs, start + 1) != 's'
+                || at(cs, bs, start + 2) != '0' || at(cs, bs, start + 3) != '$') {
+            throw new IllegalArgumentException("Invalid hashed value");
+        }
+
+        int i = start + 4, params = 0, digits = 0;
+        for (; i < end && at(cs, bs, i) != '$'; i++, digits++) {
+            int c = at(cs, bs, i);
+            int d = c < 128 ? Character.digit(c, 16) : -1;
+            if (d < 0 || digits == 8) throw new IllegalArgumentException("Invalid hashed value");
+            params = params << 4 | d;
+        }
+
+        int log2N = params >>> 16;
+        if (digits == 0 || log2N < 1 || log2N > 30 || r(params) == 0 || p(params) == 0) {
+            throw new IllegalArgumentException("Invalid hashed value");
+        }
+
+        int saltStart = ++i;
+        while (i < end && at(cs, bs, i) != '$') i++;
+        int saltEnd = i++;
+
+        if (saltEnd >= end || decodedLength(cs, bs, saltStart, saltEnd) != salt.length
+                || decodedLength(cs, bs, i, end) != key.length) {
+            throw new IllegalArgumentException("Invalid hashed value");
+        }
+
+        if (decode(cs, bs, saltStart, saltEnd, salt) != salt.length || decode(cs, bs, i, end, key) != key.length) {
+            throw new IllegalArgumentException("Invalid hashed value");
+        }
+
+        return params;
+    }
+
+    /**
+     * Length of the decoded salt of a hash, to size the salt buffer passed to
+     * {@link #parse(CharSequence, byte[], byte[])}. Hashes created by this library have
+     * a 16 byte salt, but any length is valid.
+     *
+     * @param hashed    scrypt hashed password.
+     *
+     * @return The number of bytes.
+     *
+     * @throws IllegalArgumentException when the hash is malformed.
+     */
+    public static int saltLength(CharSequence hashed) {
+        return fieldLength(hashed, 3);
+    }
+
+    /**
+     * Length of the decoded key of a hash, to size the key buffer passed to
+     * {@link #parse(CharSequence, byte[], byte[])}.
+     *
+     * @param hashed    scrypt hashed password.
+     *
+     * @return The number of bytes.
+     *
+     * @throws IllegalArgumentException when the hash is malformed.
+     */
+    public static int keyLength(CharSequence hashed) {
+        return fieldLength(hashed, 4);
+    }
+
+    /**
+     * Decoded length of the base64 field following the nth '$' of a hash.
+     */
+    private static int fieldLength(CharSequence hashed, int n) {
+        int start = -1, end = hashed.length();
+
+        for (int i = 0, count = 0; i < hashed.length(); i++) {
+            if (hashed.charAt(i) != '$') continue;
+            if (++count == n) {
+                start = i + 1;
+            } else if (count == n + 1) {
+                end = i;
+                break;
+            }
+        }
+
+        int len = start < 0 ? -1 : decodedLength(hashed, null, start, end);
+        if (len < 0) throw new IllegalArgumentException("Invalid hashed value");
+        return len;
+    }
+
+    /**
+     * Number of bytes encoded by base64 chars from start to end, padded or not, or -1
+     * when that is not a valid base64 length.
+     */
+    private static int decodedLength(CharSequence cs, byte[] bs, int start, int end) {
+        if (end > start && at(cs, bs, end - 1) == '=') end--;
+        if (end > start && at(cs, bs, end - 1) == '=') end--;
+        int len = end - start;
+        return (len & 3) == 1 ? -1 : len * 6 >> 3;
+    }
+
+    private static int decode(CharSequence cs, byte[] bs, int start, int end, byte[] dst) {
+        return cs != null ? Base64.decode(cs, start, end, dst, 0) : Base64.decode(bs, start, end, dst, 0);
+    }
+
+    private static int at(CharSequence cs, byte[] bs, int i) {
+        return cs != null ? cs.charAt(i) : bs[i] & 0xff;
+    }
+
+    /**
+     * Pack cost parameters into the PARAMS field.
+     *
+     * @param N     CPU cost parameter, a power of 2.
+     * @param r     Memory cost parameter, 1 - 255.
+     * @param p     Parallelization parameter, 1 - 255.
+     *
+     * @return The packed PARAMS field.
+     */
+    public static int params(int N, int r, int p) {
+        if (N < 2 || (N & (N - 1)) != 0) throw new IllegalArgumentException("N must be a power of 2 greater than 1");
+        if (r < 1 || r > 255 || p < 1 || p > 255) throw new IllegalArgumentException("Parameters r and p must be 1 - 255");
+        return Integer.numberOfTrailingZeros(N) << 16 | r << 8 | p;
+    }
+
+    /**
+     * CPU cost parameter N of a packed PARAMS field.
+     *
+     * @param params    Packed PARAMS field.
+     *
+     * @return N.
+     */
+    public static int N(int params) {
+        return 1 << (params >>> 16);
+    }
+
+    /**
+     * Memory cost parameter r of a packed PARAMS field.
+     *
+     * @param params    Packed PARAMS field.
+     *
+     * @return r.
+     */
+    public static int r(int params) {
+        return params >> 8 & 0xff;
+    }
+
+    /**
+     * Parallelization parameter p of a packed PARAMS field.
+     *
+     * @param params    Packed PARAMS field.
+     *
+     * @return p.
+     */
+    public static int p(int params) {
+        return params & 0xff;
+    }
+
+    /**
+     * Length of a formatted hash.
+     *
+     * @param params    Packed PARAMS field.
+     * @param saltLen   Length of the salt.
+     * @param keyLen    Length of the derived key.
+     *
+     * @return The number of chars.
+     */
+    public static int length(int params, int saltLen, int keyLen) {
+        return 4 + digits(params) + 1 + encodedLength(saltLen) + 1 + encodedLength(keyLen);
+    }
+
+    private static int digits(int params) {
+        return Math.max(1, (32 - Integer.numberOfLeadingZeros(params) + 3) / 4);
+    }
+
+    private static int encodedLength(int len) {
+        return (len + 2) / 3 * 4;
+    }
+
+    /**
+     * Format a hash into dst.
+     *
+     * @param params    Packed PARAMS field.
+     * @param salt      Salt.
+     * @param key       Derived key.
+     * @param dst       Destination of the hash.
+     * @param off       Offset in dst to place the hash at.
+     *
+     * @return Number of chars written, see {@link #length}.
+     */
+    public static int format(int params, byte[] salt, byte[] key, char[] dst, int off) {
+        int start = off;
+
+        dst[off++] = '$';
+        dst[off++] = 's';
+        dst[off++] = '0';
+        dst[off++] = '$';
+        for (int shift = (digits(params) - 1) * 4; shift >= 0; shift -= 4) {
+            dst[off++] = Character.forDigit(params >>> shift & 0xf, 16);
+        }
+        dst[off++] = '$';
+        off += Base64.encode(salt, 0, salt.length, dst, off);
+        dst[off++] = '$';
+        off += Base64.encode(key, 0, key.length, dst, off);
+
+        return off - start;
+    }
+
+    /**
+     * Format a hash into dst as ASCII.
+     *
+     * @param params    Packed PARAMS field.
+     * @param salt      Salt.
+     * @param key       Derived key.
+     * @param dst       Destination of the hash.
+     * @param off       Offset in dst to place the hash at.
+     *
+     * @return Number of bytes written, see {@link #length}.
+     */
+    public static int format(int params, byte[] salt, byte[] key, byte[] dst, int off) {
+        int start = off;
+
+        dst[off++] = '$';
+        dst[off++] = 's';
+        dst[off++] = '0';
+        dst[off++] = '$';
+        for (int shift = (digits(params) - 1) * 4; shift >= 0; shift -= 4) {
+            dst[off++] = (byte) Character.forDigit(params >>> shift & 0xf, 16);
+        }
+        dst[off++] = '$';
+        off += Base64.encode(salt, 0, salt.length, dst, off);
+        dst[off++] = '$';
+        off += Base64.encode(key, 0, key.length, dst, off);
+
+        return off - start;
+    }
+
+    /**
+     * Format a hash as a String, allocating only the String itself and its chars.
+     *
+     * @param params    Packed PARAMS field.
+     * @param salt      Salt.
+     * @param key       Derived key.
+     *
+     * @return The hashed password.
+     */
+    public static String format(int params, byte[] salt, byte[] key) {
+        char[] chars = new char[length(params, salt.length, key.length)];
+        format(params, salt, key, chars, 0);
+        return new String(chars);
+    }
+}
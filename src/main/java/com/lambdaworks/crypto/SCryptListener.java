@@ -0,0 +1,32 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+/**
+ * A {@code SCryptListener} is notified of every scrypt hash and password check, see
+ * {@link SCryptMetrics#addListener}. Listeners are called synchronously on the thread
+ * that computed the hash, so they must be fast and thread-safe. Runtime exceptions thrown
+ * by a listener are ignored.
+ *
+ * @author  agent
+ */
+public interface SCryptListener {
+    /**
+     * Called when a key has been derived.
+     *
+     * @param backend   Implementation that derived the key, {@link SCryptMetrics#NATIVE}
+     *                  or {@link SCryptMetrics#JAVA}.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param nanos     Time taken in nanoseconds.
+     */
+    void hashed(String backend, int N, int r, int p, long nanos);
+
+    /**
+     * Called when a password has been checked against a hashed password.
+     *
+     * @param matched   Whether the password matched.
+     */
+    void checked(boolean matched);
+}
@@ -0,0 +1,87 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+
+/**
+ * The keyed HMAC-SHA256 used for the PBKDF2 steps of scrypt. It is the built-in
+ * {@link HmacSHA256} under the same conditions as {@link PBKDF#pbkdf2(String, byte[], byte[], int, int)},
+ * and otherwise the preferred JCE provider's implementation, such as a FIPS module.
+ *
+ * @author  agent
+ */
+final class SCryptMac {
+    private static final String ALG = "HmacSHA256";
+
+    private final HmacSHA256 builtin;
+    private final Mac jce;
+
+    /**
+     * Create a new, unkeyed, instance.
+     *
+     * @throws GeneralSecurityException when the preferred JCE provider's HMAC_SHA256 is
+     *         used and not available.
+     */
+    SCryptMac() throws GeneralSecurityException {
+        if (PBKDF.builtin()) {
+            this.builtin = new HmacSHA256();
+            this.jce     = null;
+        } else {
+            this.builtin = null;
+            this.jce     = Mac.getInstance(ALG);
+        }
+    }
+
+    /**
+     * Key the HMAC with the supplied password.
+     *
+     * @param key   Password.
+     *
+     * @throws GeneralSecurityException when the JCE rejects the key.
+     */
+    void init(byte[] key) throws GeneralSecurityException {
+        if (builtin != null) {
+            builtin.init(key);
+        } else {
+            // an empty key is padded to the same block as a single zero byte, and
+            // SecretKeySpec rejects empty keys
+            jce.init(new SecretKeySpec(key.length > 0 ? key : new byte[1], ALG));
+        }
+    }
+
+    /**
+     * PBKDF2 with a single iteration, keyed by the last call to {@link #init}.
+     *
+     * @param S     Salt.
+     * @param DK    Byte array that derived key will be placed in.
+     * @param dkLen Intended length, in octets, of the derived key.
+     *
+     * @throws GeneralSecurityException when thrown by the JCE.
+     */
+    void pbkdf2(byte[] S, byte[] DK, int dkLen) throws GeneralSecurityException {
+        if (builtin != null) {
+            PBKDF.pbkdf2(builtin, S, 1, DK, dkLen);
+        } else {
+            PBKDF.pbkdf2(jce, S, 1, DK, dkLen);
+        }
+    }
+
+    /**
+     * Replace the password-derived keyed state.
+     */
+    void clear() {
+        if (builtin != null) {
+            builtin.clear();
+            return;
+        }
+
+        try {
+            jce.init(new SecretKeySpec(new byte[1], ALG));
+        } catch (GeneralSecurityException e) {
+            jce.reset();
+        }
+    }
+}
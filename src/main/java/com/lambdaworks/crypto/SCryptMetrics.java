@@ -0,0 +1,259 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts and latency histograms for every scrypt hash computed through {@link SCrypt}
+ * and every password checked by {@link SCryptUtil}, broken down by backend and cost
+ * parameters. The metrics are always collected using a few atomic operations per hash,
+ * and may be published over JMX with {@link #register} or observed with an
+ * {@link SCryptListener}.
+ *
+ * A rising {@link #getJavaHashCount Java hash count} on a node expected to use the native
+ * library is the signal that it has fallen back to the pure Java implementation.
+ *
+ * @author  agent
+ */
+public class SCryptMetrics implements SCryptMetricsMXBean {
+    public static final String NATIVE = "native";
+    public static final String JAVA   = "java";
+
+    /**
+     * Name the metrics are registered under by {@link #register}.
+     */
+    public static final String OBJECT_NAME = "com.lambdaworks.crypto:type=SCryptMetrics";
+
+    private static final int BUCKETS = 20;
+
+    private static final SCryptMetrics instance = new SCryptMetrics();
+    private static final CopyOnWriteArrayList<SCryptListener> listeners = new CopyOnWriteArrayList<SCryptListener>();
+
+    private final AtomicLong nativeHashes   = new AtomicLong();
+    private final AtomicLong javaHashes     = new AtomicLong();
+    private final AtomicInteger active      = new AtomicInteger();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong liveBytes      = new AtomicLong();
+    private final AtomicLong checkSuccesses = new AtomicLong();
+    private final AtomicLong checkFailures  = new AtomicLong();
+    private final ConcurrentMap<Params, AtomicLongArray> histograms = new ConcurrentHashMap<Params, AtomicLongArray>();
+
+    private SCryptMetrics() {
+    }
+
+    /**
+     * The metrics for this class loader.
+     *
+     * @return The metrics.
+     */
+    public static SCryptMetrics metrics() {
+        return instance;
+    }
+
+    /**
+     * Register the metrics with the platform MBean server under {@link #OBJECT_NAME},
+     * unless already registered.
+     *
+     * @throws JMException when registration fails.
+     */
+    public static synchronized void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(instance, name);
+        }
+    }
+
+    /**
+     * Add a listener to be notified of every hash and check.
+     *
+     * @param listener  Listener to add.
+     */
+    public static void addListener(SCryptListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener added by {@link #addListener}.
+     *
+     * @param listener  Listener to remove.
+     */
+    public static void removeListener(SCryptListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Record the start of a hash.
+     *
+     * @return The start time, to pass to {@link #hashed}.
+     */
+    static long start(int N, int r) {
+        long bytes = 128L * r * N;
+        instance.active.incrementAndGet();
+        instance.allocatedBytes.addAndGet(bytes);
+        instance.liveBytes.addAndGet(bytes);
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the end of a hash, or batch of hashes, started with {@link #start}.
+     *
+     * @param hashes    Number of keys derived, 0 when an exception was thrown.
+     */
+    static void end(boolean nativeBackend, int N, int r, int p, long start, int hashes) {
+        instance.active.decrementAndGet();
+        instance.liveBytes.addAndGet(-128L * r * N);
+        if (hashes == 0) return;
+
+        long nanos = (System.nanoTime() - start) / hashes;
+        (nativeBackend ? instance.nativeHashes : instance.javaHashes).addAndGet(hashes);
+
+        Params key = new Params(nativeBackend, N, r, p);
+        AtomicLongArray histogram = instance.histograms.get(key);
+        if (histogram == null) {
+            AtomicLongArray created = new AtomicLongArray(BUCKETS);
+            histogram = instance.histograms.putIfAbsent(key, created);
+            if (histogram == null) histogram = created;
+        }
+        long millis = nanos / 1000000;
+        histogram.addAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis)), hashes);
+
+        if (!listeners.isEmpty()) {
+            String backend = nativeBackend ? NATIVE : JAVA;
+            for (SCryptListener listener : listeners) {
+                for (int i = 0; i < hashes; i++) {
+                    try {
+                        listener.hashed(backend, N, r, p, nanos);
+                    } catch (RuntimeException e) {
+                        // a failing listener must not affect the hash or other listeners
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Record the result of a password check.
+     */
+    static void checked(boolean matched) {
+        (matched ? instance.checkSuccesses : instance.checkFailures).incrementAndGet();
+        for (SCryptListener listener : listeners) {
+            try {
+                listener.checked(matched);
+            } catch (RuntimeException e) {
+                // a failing listener must not affect the check or other listeners
+            }
+        }
+    }
+
+    public boolean isNativeLibraryLoaded() {
+        return SCrypt.native_library_loaded;
+    }
+
+    public String getBackend() {
+        return SCrypt.backend().name();
+    }
+
+    public String getFallbackReason() {
+        SCryptBackend backend = SCrypt.backend();
+        return backend.isNative() ? null : backend.toString();
+    }
+
+    public long getNativeHashCount() {
+        return nativeHashes.get();
+    }
+
+    public long getJavaHashCount() {
+        return javaHashes.get();
+    }
+
+    public int getActiveHashes() {
+        return active.get();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    public long getLiveBytes() {
+        return liveBytes.get();
+    }
+
+    public long getCheckSuccessCount() {
+        return checkSuccesses.get();
+    }
+
+    public long getCheckFailureCount() {
+        return checkFailures.get();
+    }
+
+    public Map<String, long[]> getLatencyHistograms() {
+        Map<String, long[]> result = new TreeMap<String, long[]>();
+
+        for (Map.Entry<Params, AtomicLongArray> entry : histograms.entrySet()) {
+            AtomicLongArray histogram = entry.getValue();
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+            }
+            result.put(entry.getKey().toString(), counts);
+        }
+
+        return result;
+    }
+
+    public void reset() {
+        nativeHashes.set(0);
+        javaHashes.set(0);
+        allocatedBytes.set(0);
+        checkSuccesses.set(0);
+        checkFailures.set(0);
+        histograms.clear();
+    }
+
+    /**
+     * Backend and cost parameters a latency histogram is kept for.
+     */
+    private static final class Params {
+        final boolean nativeBackend;
+        final int N;
+        final int r;
+        final int p;
+
+        Params(boolean nativeBackend, int N, int r, int p) {
+            this.nativeBackend = nativeBackend;
+            this.N = N;
+            this.r = r;
+            this.p = p;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Params)) return false;
+            Params other = (Params) o;
+            return nativeBackend == other.nativeBackend && N == other.N && r == other.r && p == other.p;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((N * 31 + r) * 31 + p) * 2 + (nativeBackend ? 1 : 0);
+        }
+
+        @Override
+        public String toString() {
+            return (nativeBackend ? NATIVE : JAVA) + " N=" + N + " r=" + r + " p=" + p;
+        }
+    }
+}
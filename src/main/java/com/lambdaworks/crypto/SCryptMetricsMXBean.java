@@ -0,0 +1,75 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link SCryptMetrics}.
+ *
+ * @author  agent
+ */
+public interface SCryptMetricsMXBean {
+    /**
+     * Whether the native library was loaded.
+     */
+    boolean isNativeLibraryLoaded();
+
+    /**
+     * Name of the implementation keys are derived with, see {@link SCrypt#backend}.
+     */
+    String getBackend();
+
+    /**
+     * Why the pure Java implementation is used, or null when the native one is.
+     */
+    String getFallbackReason();
+
+    /**
+     * Number of keys derived by the native implementation.
+     */
+    long getNativeHashCount();
+
+    /**
+     * Number of keys derived by the pure Java implementation.
+     */
+    long getJavaHashCount();
+
+    /**
+     * Number of hashes in progress.
+     */
+    int getActiveHashes();
+
+    /**
+     * Total bytes of V storage allocated by all hashes.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Bytes of V storage used by hashes in progress.
+     */
+    long getLiveBytes();
+
+    /**
+     * Number of password checks that matched.
+     */
+    long getCheckSuccessCount();
+
+    /**
+     * Number of password checks that did not match.
+     */
+    long getCheckFailureCount();
+
+    /**
+     * Latency histograms keyed by backend and cost parameters, for example
+     * {@code "native N=16384 r=8 p=1"}. Bucket 0 counts hashes that took less than
+     * 1ms and bucket i, for i &gt; 0, hashes that took [2^(i-1), 2^i) ms; the last
+     * bucket also counts all slower hashes.
+     */
+    Map<String, long[]> getLatencyHistograms();
+
+    /**
+     * Discard all counts and histograms.
+     */
+    void reset();
+}
@@ -0,0 +1,214 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.lambdaworks.crypto.SCrypt.*;
+
+/**
+ * A set of <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt</a> cost parameters,
+ * and calibration of the strongest parameters the active implementation can compute within
+ * a latency and memory budget on this machine.
+ *
+ * @author  agent
+ */
+public class SCryptParams {
+    public final int N;
+    public final int r;
+    public final int p;
+
+    private static final int R = 8;
+    private static final int MIN_LOG2_N = 10;
+
+    private static final Map<String, SCryptParams> calibrated = new HashMap<String, SCryptParams>();
+
+    /**
+     * Create a new set of cost parameters.
+     *
+     * @param N     CPU cost parameter, a power of 2 greater than 1.
+     * @param r     Memory cost parameter, 1 - 255.
+     * @param p     Parallelization parameter, 1 - 255.
+     */
+    public SCryptParams(int N, int r, int p) {
+        if (N < 2 || (N & (N - 1)) != 0) throw new IllegalArgumentException("N must be a power of 2 greater than 1");
+        if (r < 1 || r > 255) throw new IllegalArgumentException("Parameter r must be 1 - 255");
+        if (p < 1 || p > 255) throw new IllegalArgumentException("Parameter p must be 1 - 255");
+        if (N > Integer.MAX_VALUE / 128 / r) throw new IllegalArgumentException("Parameter N is too large");
+
+        this.N = N;
+        this.r = r;
+        this.p = p;
+    }
+
+    /**
+     * Find the strongest cost parameters that derive a key within targetMillis when
+     * concurrency keys are derived at once, using at most maxMemoryBytes for all of them.
+     *
+     * The active implementation, native or pure Java, is benchmarked with r = 8 and p = 1,
+     * doubling N until a hash at the requested concurrency exceeds the target or the memory
+     * budget is reached. Any remaining latency budget is then spent on increasing p. When
+     * even N = 1024 exceeds the target those parameters are returned.
+     *
+     * Calibration first waits for the native library to finish loading, see
+     * {@link SCrypt#preload}, so the implementation that will derive keys is the one that
+     * is benchmarked. Benchmarking takes a few multiples of targetMillis and the result is
+     * cached for the life of the class loader, so repeated calls with the same arguments
+     * and implementation return at once.
+     *
+     * @param targetMillis      Maximum time to derive a key, in milliseconds.
+     * @param maxMemoryBytes    Maximum bytes of storage used by concurrent hashes.
+     * @param concurrency       Number of keys expected to be derived at once.
+     *
+     * @return The calibrated parameters.
+     */
+    public static synchronized SCryptParams calibrate(long targetMillis, long maxMemoryBytes, int concurrency) {
+        if (targetMillis < 1) throw new IllegalArgumentException("Target must be greater than 0");
+        if (concurrency < 1) throw new IllegalArgumentException("Concurrency must be greater than 0");
+        if (maxMemoryBytes < concurrency * SCryptExecutor.memory(1 << MIN_LOG2_N, R, 1)) {
+            throw new IllegalArgumentException("Memory budget is too small");
+        }
+
+        boolean nativeBackend = preload();
+
+        String backend = nativeBackend ? SCryptMetrics.NATIVE : SCryptMetrics.JAVA;
+        String key = backend + "/" + targetMillis + "/" + maxMemoryBytes + "/" + concurrency;
+        SCryptParams params = calibrated.get(key);
+
+        if (params == null) {
+            try {
+                params = benchmark(nativeBackend, targetMillis * 1000000, maxMemoryBytes, concurrency);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("JVM doesn't support HMAC_SHA256?");
+            }
+            calibrated.put(key, params);
+        }
+
+        return params;
+    }
+
+    private static SCryptParams benchmark(boolean nativeBackend, long target, long maxMemory, int concurrency) throws GeneralSecurityException {
+        int threads = Math.min(concurrency, Runtime.getRuntime().availableProcessors());
+        int rounds  = (concurrency + threads - 1) / threads;
+
+        measure(nativeBackend, 1 << MIN_LOG2_N, R, 1, 1);
+        measure(nativeBackend, 1 << MIN_LOG2_N, R, 1, 1);
+
+        int N = 1 << MIN_LOG2_N;
+        long elapsed = measure(nativeBackend, N, R, 1, threads) * rounds;
+
+        while (elapsed * 2 <= target && N <= Integer.MAX_VALUE / 128 / R / 2
+                && concurrency * SCryptExecutor.memory(N * 2, R, 1) <= maxMemory) {
+            long next = measure(nativeBackend, N * 2, R, 1, threads) * rounds;
+            if (next > target) break;
+            N *= 2;
+            elapsed = next;
+        }
+
+        int p = (int) Math.max(1, Math.min(255, target / Math.max(1, elapsed)));
+        while (p > 1 && concurrency * SCryptExecutor.memory(N, R, p) > maxMemory) p--;
+
+        return new SCryptParams(N, R, p);
+    }
+
+    /**
+     * Derive a key on the supplied number of threads at once and return the time, in
+     * nanoseconds, until the slowest one finished.
+     */
+    private static long measure(final boolean nativeBackend, final int N, final int r, final int p, int threads) throws GeneralSecurityException {
+        final byte[] passwd = new byte[16];
+        final byte[] salt   = new byte[16];
+
+        if (threads == 1) {
+            long start = System.nanoTime();
+            derive(nativeBackend, passwd, salt, N, r, p);
+            return System.nanoTime() - start;
+        }
+
+        final CountDownLatch ready = new CountDownLatch(threads);
+        final CountDownLatch go    = new CountDownLatch(1);
+        final CountDownLatch done  = new CountDownLatch(threads);
+        final AtomicLong slowest   = new AtomicLong();
+        final GeneralSecurityException[] error = new GeneralSecurityException[1];
+
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread("scrypt-calibrate-" + i) {
+                public void run() {
+                    try {
+                        ready.countDown();
+                        go.await();
+                        long start = System.nanoTime();
+                        derive(nativeBackend, passwd, salt, N, r, p);
+                        long elapsed = System.nanoTime() - start, max;
+                        while (elapsed > (max = slowest.get()) && !slowest.compareAndSet(max, elapsed));
+                    } catch (GeneralSecurityException e) {
+                        error[0] = e;
+                    } catch (InterruptedException e) {
+                        // fall through
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+            t.setDaemon(true);
+            t.start();
+        }
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                ready.await();
+                go.countDown();
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        if (error[0] != null) throw error[0];
+        return slowest.get();
+    }
+
+    private static void derive(boolean nativeBackend, byte[] passwd, byte[] salt, int N, int r, int p) throws GeneralSecurityException {
+        if (nativeBackend) {
+            scryptN(passwd, salt, N, r, p, 32);
+        } else {
+            scryptJ(passwd, salt, N, r, p, 32);
+        }
+    }
+
+    /**
+     * Whether these parameters cost less than others in CPU or memory, so a hash using
+     * them should be recomputed with the others.
+     *
+     * @param params    Parameters to compare with.
+     *
+     * @return true if N, r, or p is less than the corresponding parameter of params.
+     */
+    public boolean isWeakerThan(SCryptParams params) {
+        return N < params.N || r < params.r || p < params.p;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SCryptParams)) return false;
+        SCryptParams params = (SCryptParams) o;
+        return N == params.N && r == params.r && p == params.p;
+    }
+
+    @Override
+    public int hashCode() {
+        return (N * 31 + r) * 31 + p;
+    }
+
+    @Override
+    public String toString() {
+        return "N=" + N + ",r=" + r + ",p=" + p;
+    }
+}
@@ -0,0 +1,216 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import static java.lang.System.arraycopy;
+import static com.lambdaworks.crypto.SCrypt.*;
+
+/**
+ * A pure Java <a href="http://www.tarsnap.com/scrypt/scrypt.pdf"/>scrypt</a> computation
+ * that advances in bounded steps, so a long running hash can share a thread with other
+ * work and be abandoned part way through.
+ *
+ * Each call to {@link #step} runs at most the requested number of BlockMix iterations,
+ * of which a complete hash needs 2 * N * p, and returns true once the derived key is
+ * available from {@link #key}. {@link #cancel} may be called from any thread; the next
+ * step then releases the scratch storage and throws a {@link CancellationException}.
+ *
+ * Instances are not thread-safe apart from {@link #cancel}.
+ *
+ * @author  agent
+ */
+public class SCryptState {
+    public final int N;
+    public final int r;
+    public final int p;
+
+    private final int dkLen;
+    private SCryptMac mac;
+    private byte[] B;
+    private int[] B32;
+    private int[] XY;
+    private int[] V;
+    private byte[] DK;
+
+    private int lane;
+    private int iteration;
+    private volatile boolean cancelled;
+
+    /**
+     * Start a computation of the key derived from the supplied password and salt. The
+     * initial PBKDF2 step runs immediately.
+     *
+     * @param passwd    Password.
+     * @param salt      Salt.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param dkLen     Intended length of the derived key.
+     *
+     * @throws GeneralSecurityException when HMAC_SHA256 is not available from a preferred
+     *         JCE provider other than SunJCE.
+     */
+    public SCryptState(byte[] passwd, byte[] salt, int N, int r, int p, int dkLen) throws GeneralSecurityException {
+        if (N < 2 || (N & (N - 1)) != 0) throw new IllegalArgumentException("N must be a power of 2 greater than 1");
+
+        if (N > Integer.MAX_VALUE / 128 / r) throw new IllegalArgumentException("Parameter N is too large");
+        if (r > Integer.MAX_VALUE / 128 / p) throw new IllegalArgumentException("Parameter r is too large");
+
+        this.N     = N;
+        this.r     = r;
+        this.p     = p;
+        this.dkLen = dkLen;
+
+        this.mac = new SCryptMac();
+        this.B   = new byte[128 * r * p];
+        this.B32 = new int[32 * r * p];
+        this.XY  = new int[64 * r + 16];
+        this.V   = new int[32 * r * N];
+
+        mac.init(passwd);
+        mac.pbkdf2(salt, B, p * 128 * r);
+        le32dec(B, 0, B32, 0, 32 * r * p);
+        arraycopy(B32, 0, XY, 0, 32 * r);
+    }
+
+    /**
+     * Run up to the supplied number of BlockMix iterations, rounded up to an even number.
+     *
+     * @param iterations    Maximum number of iterations to run.
+     *
+     * @return true if the derived key is complete.
+     *
+     * @throws CancellationException when the computation has been cancelled.
+     * @throws GeneralSecurityException when thrown by a preferred JCE provider of HMAC_SHA256
+     *         other than SunJCE.
+     */
+    public boolean step(int iterations) throws GeneralSecurityException {
+        if (cancelled) {
+            release();
+            throw new CancellationException();
+        }
+
+        if (DK != null) return true;
+
+        long remaining = Math.max(2, iterations + (iterations & 1L));
+
+        while (remaining > 0 && lane < p) {
+            int to = (int) Math.min(2L * N, iteration + remaining);
+
+            smix_steps(XY, r, N, V, iteration, to);
+            remaining -= to - iteration;
+            iteration  = to;
+
+            if (iteration == 2 * N) {
+                arraycopy(XY, 0, B32, lane * 32 * r, 32 * r);
+                iteration = 0;
+                if (++lane < p) {
+                    arraycopy(B32, lane * 32 * r, XY, 0, 32 * r);
+                }
+            }
+        }
+
+        if (lane < p) return false;
+
+        byte[] key = new byte[dkLen];
+        le32enc(B32, 0, B, 0, 32 * r * p);
+        mac.pbkdf2(B, key, dkLen);
+        release();
+        DK = key;
+
+        return true;
+    }
+
+    /**
+     * Run the computation to completion on the calling thread, yielding between steps of
+     * the supplied number of iterations and stopping early if the computation is cancelled
+     * or the thread is interrupted.
+     *
+     * @param iterations    Number of iterations to run between yields.
+     *
+     * @return The derived key.
+     *
+     * @throws CancellationException when the computation has been cancelled.
+     * @throws InterruptedException when the thread is interrupted, which also cancels the
+     *         computation.
+     * @throws GeneralSecurityException when thrown by a preferred JCE provider of HMAC_SHA256
+     *         other than SunJCE.
+     */
+    public byte[] finish(int iterations) throws GeneralSecurityException, InterruptedException {
+        while (!step(iterations)) {
+            if (Thread.interrupted()) {
+                cancel();
+                release();
+                throw new InterruptedException();
+            }
+            Thread.yield();
+        }
+        return key();
+    }
+
+    /**
+     * Stop the computation. The scratch storage is released by the next call to
+     * {@link #step}, which throws a {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Whether {@link #cancel} has been called.
+     *
+     * @return true if cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Whether the derived key is complete.
+     *
+     * @return true if complete.
+     */
+    public boolean isDone() {
+        return DK != null;
+    }
+
+    /**
+     * Number of BlockMix iterations run so far, out of 2 * N * p.
+     *
+     * @return The number of iterations.
+     */
+    public long progress() {
+        return DK != null ? 2L * N * p : 2L * N * lane + iteration;
+    }
+
+    /**
+     * The derived key.
+     *
+     * @return The derived key.
+     *
+     * @throws IllegalStateException when the computation is not complete.
+     */
+    public byte[] key() {
+        if (DK == null) throw new IllegalStateException("Computation is not complete");
+        return DK;
+    }
+
+    private void release() {
+        if (B != null) {
+            Arrays.fill(B, (byte) 0);
+            Arrays.fill(B32, 0);
+            Arrays.fill(XY, 0);
+            Arrays.fill(V, 0);
+            mac.clear();
+        }
+        mac = null;
+        B   = null;
+        B32 = null;
+        XY  = null;
+        V   = null;
+    }
+}
@@ -4,9 +4,10 @@ package com.lambdaworks.crypto;
 
 import java.io.UnsupportedEncodingException;
 import java.security.GeneralSecurityException;
-import java.security.SecureRandom;
-
-import static com.lambdaworks.codec.Base64.*;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Simple {@link SCrypt} interface for hashing passwords using the
@@ -28,6 +29,49 @@ import static com.lambdaworks.codec.Base64.*;
  * @author  Will Glozer
  */
 public class SCryptUtil {
+    private static volatile SaltGenerator salts;
+
+    private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * Set the source of salts for new hashes.
+     *
+     * @param generator Salt generator.
+     */
+    public static void saltGenerator(SaltGenerator generator) {
+        if (generator == null) throw new NullPointerException("Null salt generator");
+        salts = generator;
+    }
+
+    /**
+     * The source of salts for new hashes. Unless one has been set, a
+     * {@link SecureRandomSaltGenerator} is created on first use with the algorithm named by
+     * the system property {@code com.lambdaworks.scrypt.random}, or {@code SHA1PRNG}.
+     *
+     * @return The salt generator.
+     */
+    public static SaltGenerator saltGenerator() {
+        SaltGenerator generator = salts;
+        if (generator != null) return generator;
+
+        synchronized (SCryptUtil.class) {
+            if (salts == null) {
+                String algorithm = System.getProperty("com.lambdaworks.scrypt.random", "SHA1PRNG");
+                try {
+                    salts = new SecureRandomSaltGenerator(algorithm);
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("JVM doesn't support " + algorithm + "?");
+                }
+            }
+            return salts;
+        }
+    }
+
     /**
      * Hash the supplied plaintext password and generate output in the format described
      * in {@link SCryptUtil}.
@@ -41,26 +85,89 @@ public class SCryptUtil {
      */
     public static String scrypt(String passwd, int N, int r, int p) {
         try {
-            byte[] salt = new byte[16];
-            SecureRandom.getInstance("SHA1PRNG").nextBytes(salt);
+            return hash(passwd.getBytes("UTF-8"), N, r, p);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("JVM doesn't support UTF-8?");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("JVM doesn't support SHA1PRNG or HMAC_SHA256?");
+        }
+    }
 
-            byte[] derived = SCrypt.scrypt(passwd.getBytes("UTF-8"), salt, N, r, p, 32);
+    private static String hash(byte[] passwd, int N, int r, int p) throws GeneralSecurityException {
+        int params = SCryptFormat.params(N, r, p);
 
-            String params = Long.toString(log2(N) << 16L | r << 8 | p, 16);
+        Scratch s = scratch.get();
+        saltGenerator().nextBytes(s.salt, 0, s.salt.length);
 
-            StringBuilder sb = new StringBuilder((salt.length + derived.length) * 2);
-            sb.append("$s0$").append(params).append('$');
-            sb.append(encode(salt)).append('$');
-            sb.append(encode(derived));
+        try {
+            SCrypt.scrypt(passwd, s.salt, N, r, p, s.derived1, 32);
+            return SCryptFormat.format(params, s.salt, s.derived1);
+        } finally {
+            Arrays.fill(s.derived1, (byte) 0);
+        }
+    }
 
-            return sb.toString();
+    /**
+     * Hash a batch of plaintext passwords with the same cost parameters, drawing all the
+     * salts from the {@link #saltGenerator} at once and deriving the keys with
+     * {@link SCrypt#scryptBatch}.
+     *
+     * @param passwds   Passwords.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     *
+     * @return The hashed passwords, in the same order as passwds.
+     */
+    public static String[] scryptBatch(String[] passwds, int N, int r, int p) {
+        int params = SCryptFormat.params(N, r, p);
+        byte[][] P = new byte[passwds.length][];
+        byte[][] S = new byte[passwds.length][16];
+
+        try {
+            byte[] salts = new byte[passwds.length * 16];
+            saltGenerator().nextBytes(salts, 0, salts.length);
+
+            for (int i = 0; i < passwds.length; i++) {
+                P[i] = passwds[i].getBytes("UTF-8");
+                System.arraycopy(salts, i * 16, S[i], 0, 16);
+            }
+
+            byte[] DK = new byte[passwds.length * 32];
+            SCrypt.scryptBatch(P, S, N, r, p, DK, 32);
+
+            String[] hashed = new String[passwds.length];
+            byte[] key = new byte[32];
+            for (int i = 0; i < hashed.length; i++) {
+                System.arraycopy(DK, i * 32, key, 0, 32);
+                hashed[i] = SCryptFormat.format(params, S[i], key);
+            }
+
+            return hashed;
         } catch (UnsupportedEncodingException e) {
             throw new IllegalStateException("JVM doesn't support UTF-8?");
         } catch (GeneralSecurityException e) {
-            throw new IllegalStateException("JVM doesn't support SHA1PRNG or HMAC_SHA256?");
+            throw new IllegalStateException("JVM doesn't support HMAC_SHA256?");
+        } finally {
+            for (byte[] bytes : P) {
+                if (bytes != null) Arrays.fill(bytes, (byte) 0);
+            }
         }
     }
 
+    /**
+     * Hash the supplied plaintext password with a set of cost parameters, such as those
+     * returned by {@link SCryptParams#calibrate}, see {@link #scrypt(String, int, int, int)}.
+     *
+     * @param passwd    Password.
+     * @param params    Cost parameters.
+     *
+     * @return The hashed password.
+     */
+    public static String scrypt(String passwd, SCryptParams params) {
+        return scrypt(passwd, params.N, params.r, params.p);
+    }
+
     /**
      * Compare the supplied plaintext password to a hashed password.
      *
@@ -71,42 +178,181 @@ public class SCryptUtil {
      */
     public static boolean check(String passwd, String hashed) {
         try {
-            String[] parts = hashed.split("\\$");
+            return check(passwd.getBytes("UTF-8"), hashed, null) != null;
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("JVM doesn't support UTF-8?");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("JVM doesn't support SHA1PRNG or HMAC_SHA256?");
+        }
+    }
 
-            if (parts.length != 5 || !parts[1].equals("s0")) {
-                throw new IllegalArgumentException("Invalid hashed value");
-            }
+    /**
+     * Compare the supplied plaintext password to a hashed password and, when it matches
+     * but was hashed with parameters weaker than the policy, hash it again with the
+     * policy's parameters. The password is encoded once and used for both hashes.
+     *
+     * Callers store the result whenever it differs from hashed:
+     *
+     * <pre>
+     * String result = SCryptUtil.checkAndUpgrade(passwd, hashed, policy);
+     * if (result == null) { ... reject ... }
+     * if (!result.equals(hashed)) { ... store result ... }
+     * </pre>
+     *
+     * @param   passwd  Plaintext password.
+     * @param   hashed  scrypt hashed password.
+     * @param   policy  Minimum cost parameters.
+     *
+     * @return null if passwd does not match hashed value, hashed if it matches and the
+     *         parameters meet the policy, otherwise a new hashed password.
+     */
+    public static String checkAndUpgrade(String passwd, String hashed, SCryptParams policy) {
+        byte[] P = null;
+        try {
+            P = passwd.getBytes("UTF-8");
+            return check(P, hashed, policy);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("JVM doesn't support UTF-8?");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("JVM doesn't support SHA1PRNG or HMAC_SHA256?");
+        } finally {
+            if (P != null) Arrays.fill(P, (byte) 0);
+        }
+    }
 
-            long params = Long.parseLong(parts[2], 16);
-            byte[] salt = decode(parts[3].toCharArray());
-            byte[] derived0 = decode(parts[4].toCharArray());
+    private static String check(byte[] passwd, String hashed, SCryptParams policy) throws GeneralSecurityException {
+        Scratch s = scratch.get();
+        int saltLen = SCryptFormat.saltLength(hashed);
+        int keyLen  = SCryptFormat.keyLength(hashed);
 
-            int N = (int) Math.pow(2, params >> 16 & 0xffff);
-            int r = (int) params >> 8 & 0xff;
-            int p = (int) params      & 0xff;
+        byte[] salt = saltLen == s.salt.length ? s.salt : new byte[saltLen];
+        byte[] derived0 = keyLen == s.derived0.length ? s.derived0 : new byte[keyLen];
+        byte[] derived1 = s.derived1;
+        boolean matched;
 
-            byte[] derived1 = SCrypt.scrypt(passwd.getBytes("UTF-8"), salt, N, r, p, 32);
+        int params = SCryptFormat.parse(hashed, salt, derived0);
+        int N = SCryptFormat.N(params);
+        int r = SCryptFormat.r(params);
+        int p = SCryptFormat.p(params);
 
-            if (derived0.length != derived1.length) return false;
+        try {
+            SCrypt.scrypt(passwd, salt, N, r, p, derived1, 32);
 
-            int result = 0;
-            for (int i = 0; i < derived0.length; i++) {
+            int result = derived0.length ^ derived1.length;
+            for (int i = 0; i < derived0.length && i < derived1.length; i++) {
                 result |= derived0[i] ^ derived1[i];
             }
-            return result == 0;
-        } catch (UnsupportedEncodingException e) {
-            throw new IllegalStateException("JVM doesn't support UTF-8?");
-        } catch (GeneralSecurityException e) {
-            throw new IllegalStateException("JVM doesn't support SHA1PRNG or HMAC_SHA256?");
+            matched = result == 0;
+        } finally {
+            Arrays.fill(derived0, (byte) 0);
+            Arrays.fill(derived1, (byte) 0);
+        }
+
+        SCryptMetrics.checked(matched);
+        if (!matched) return null;
+
+        if (policy != null && (N < policy.N || r < policy.r || p < policy.p)) {
+            return hash(passwd, Math.max(N, policy.N), Math.max(r, policy.r), Math.max(p, policy.p));
         }
+
+        return hashed;
+    }
+
+    /**
+     * Hash the supplied plaintext password on the shared {@link SCryptExecutor}, see
+     * {@link #scrypt(String, int, int, int)}.
+     *
+     * @param passwd    Password.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     *
+     * @return A future for the hashed password.
+     *
+     * @throws RejectedExecutionException when the executor cannot accept the request.
+     */
+    public static Future<String> scryptAsync(String passwd, int N, int r, int p) {
+        return scryptAsync(passwd, N, r, p, SharedExecutor.INSTANCE);
+    }
+
+    /**
+     * Hash the supplied plaintext password on an {@link SCryptExecutor}, see
+     * {@link #scrypt(String, int, int, int)}.
+     *
+     * @param passwd    Password.
+     * @param N         CPU cost parameter.
+     * @param r         Memory cost parameter.
+     * @param p         Parallelization parameter.
+     * @param executor  Executor to hash on.
+     *
+     * @return A future for the hashed password.
+     *
+     * @throws RejectedExecutionException when the executor cannot accept the request.
+     */
+    public static Future<String> scryptAsync(final String passwd, final int N, final int r, final int p, SCryptExecutor executor) {
+        return executor.submit(N, r, p, new Callable<String>() {
+            public String call() {
+                return scrypt(passwd, N, r, p);
+            }
+        });
+    }
+
+    /**
+     * Compare the supplied plaintext password to a hashed password on the shared
+     * {@link SCryptExecutor}, see {@link #check(String, String)}.
+     *
+     * @param   passwd  Plaintext password.
+     * @param   hashed  scrypt hashed password.
+     *
+     * @return A future that is true if passwd matches hashed value.
+     *
+     * @throws RejectedExecutionException when the executor cannot accept the request.
+     */
+    public static Future<Boolean> checkAsync(String passwd, String hashed) {
+        return checkAsync(passwd, hashed, SharedExecutor.INSTANCE);
+    }
+
+    /**
+     * Compare the supplied plaintext password to a hashed password on an
+     * {@link SCryptExecutor}, see {@link #check(String, String)}.
+     *
+     * @param   passwd      Plaintext password.
+     * @param   hashed      scrypt hashed password.
+     * @param   executor    Executor to check on.
+     *
+     * @return A future that is true if passwd matches hashed value.
+     *
+     * @throws RejectedExecutionException when the executor cannot accept the request.
+     */
+    public static Future<Boolean> checkAsync(final String passwd, final String hashed, SCryptExecutor executor) {
+        int params = SCryptFormat.parse(hashed, new byte[SCryptFormat.saltLength(hashed)],
+                new byte[SCryptFormat.keyLength(hashed)]);
+        int N = SCryptFormat.N(params);
+        int r = SCryptFormat.r(params);
+        int p = SCryptFormat.p(params);
+
+        return executor.submit(N, r, p, new Callable<Boolean>() {
+            public Boolean call() {
+                return check(passwd, hashed);
+            }
+        });
+    }
+
+    /**
+     * Salt and key buffers of the s0 format reused by each thread's hashes and checks.
+     */
+    private static final class Scratch {
+        final byte[] salt     = new byte[16];
+        final byte[] derived0 = new byte[32];
+        final byte[] derived1 = new byte[32];
     }
 
-    private static int log2(int n) {
-        int log = 0;
-        if ((n & 0xffff0000 ) != 0) { n >>>= 16; log = 16; }
-        if (n >= 256) { n >>>= 8; log += 8; }
-        if (n >= 16 ) { n >>>= 4; log += 4; }
-        if (n >= 4  ) { n >>>= 2; log += 2; }
-        return log + (n >>> 1);
+    /**
+     * Executor shared by the async methods that don't take one, created on first use
+     * with one thread per processor and a memory budget of half the maximum heap size.
+     */
+    private static class SharedExecutor {
+        static final SCryptExecutor INSTANCE = new SCryptExecutor(
+                Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 2, 4096);
     }
 }
@@ -0,0 +1,20 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+/**
+ * Source of random salts for {@link SCryptUtil}, see {@link SCryptUtil#saltGenerator}.
+ * Implementations must be thread-safe.
+ *
+ * @author  agent
+ */
+public interface SaltGenerator {
+    /**
+     * Fill a range of dst with random bytes.
+     *
+     * @param dst   Destination of the salt.
+     * @param off   Offset in dst to place the salt at.
+     * @param len   Length of the salt.
+     */
+    void nextBytes(byte[] dst, int off, int len);
+}
@@ -0,0 +1,106 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * A {@link SaltGenerator} backed by {@link SecureRandom} instances created once and shared
+ * by all callers. Threads are spread over one stripe per processor, each with its own
+ * instance and a buffer of pre-generated bytes, so salts are usually copied from the
+ * buffer without contending on, or reseeding, a PRNG.
+ *
+ * The algorithm may be any name accepted by {@link SecureRandom#getInstance}, such as
+ * {@code SHA1PRNG}, {@code NativePRNGNonBlocking}, or on Java 9 and later {@code DRBG},
+ * or {@code strong} for {@code SecureRandom.getInstanceStrong()} on Java 8 and later.
+ *
+ * @author  agent
+ */
+public class SecureRandomSaltGenerator implements SaltGenerator {
+    private static final int BUFFER = 1024;
+
+    private final Stripe[] stripes;
+
+    /**
+     * Create a new generator with one stripe per available processor.
+     *
+     * @param algorithm PRNG algorithm.
+     *
+     * @throws GeneralSecurityException when the algorithm is not available.
+     */
+    public SecureRandomSaltGenerator(String algorithm) throws GeneralSecurityException {
+        this(algorithm, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new generator.
+     *
+     * @param algorithm PRNG algorithm.
+     * @param stripes   Number of stripes, rounded up to a power of 2.
+     *
+     * @throws GeneralSecurityException when the algorithm is not available.
+     */
+    public SecureRandomSaltGenerator(String algorithm, int stripes) throws GeneralSecurityException {
+        if (stripes < 1) throw new IllegalArgumentException("Stripes must be greater than 0");
+
+        int n = Integer.highestOneBit(Math.min(stripes, 1 << 16) * 2 - 1);
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe(random(algorithm));
+        }
+    }
+
+    private static SecureRandom random(String algorithm) throws GeneralSecurityException {
+        if (!"strong".equals(algorithm)) return SecureRandom.getInstance(algorithm);
+
+        try {
+            return (SecureRandom) SecureRandom.class.getMethod("getInstanceStrong").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new GeneralSecurityException("SecureRandom.getInstanceStrong requires Java 8");
+        } catch (Exception e) {
+            Throwable t = e.getCause() != null ? e.getCause() : e;
+            if (t instanceof GeneralSecurityException) throw (GeneralSecurityException) t;
+            throw new GeneralSecurityException(t);
+        }
+    }
+
+    public void nextBytes(byte[] dst, int off, int len) {
+        if (off < 0 || len < 0 || off > dst.length - len) throw new ArrayIndexOutOfBoundsException();
+
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        synchronized (stripe) {
+            stripe.next(dst, off, len);
+        }
+    }
+
+    private static class Stripe {
+        final SecureRandom random;
+        final byte[] buffer = new byte[BUFFER];
+        int pos = BUFFER;
+
+        Stripe(SecureRandom random) {
+            this.random = random;
+        }
+
+        void next(byte[] dst, int off, int len) {
+            if (len > BUFFER / 4) {
+                byte[] bytes = new byte[len];
+                random.nextBytes(bytes);
+                System.arraycopy(bytes, 0, dst, off, len);
+                Arrays.fill(bytes, (byte) 0);
+                return;
+            }
+
+            if (BUFFER - pos < len) {
+                random.nextBytes(buffer);
+                pos = 0;
+            }
+
+            System.arraycopy(buffer, pos, dst, off, len);
+            Arrays.fill(buffer, pos, pos + len, (byte) 0);
+            pos += len;
+        }
+    }
+}
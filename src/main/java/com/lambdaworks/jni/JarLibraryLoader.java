@@ -3,11 +3,20 @@
 package com.lambdaworks.jni;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.security.CodeSource;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 /**
  * A native library loader that will extract and load a shared library contained in a jar.
@@ -15,13 +24,23 @@ import java.util.jar.JarFile;
  * it is running on and load the appropriate shared library.
  *
  * Given a library path and name this loader looks for a native library with path
- * [libraryPath]/[arch]/[os]/lib[name].[ext]
+ * [libraryPath]/[arch]/[os]/lib[name].[ext], where [os] is {@code linux-musl} on Linux
+ * systems using the musl C library.
+ *
+ * Libraries are normally extracted to a temp file that is deleted once loaded. When a
+ * cache directory is supplied, or named by the system property
+ * {@code com.lambdaworks.jni.cache}, extracted libraries are kept there under a name
+ * derived from the size, CRC and manifest digests of the jar entry. Later loads of the
+ * same entry reuse the cached file without reading the entry again. The directory is
+ * restricted so that only its owner can write to it.
  *
  * @author Will Glozer
  */
-public class JarLibraryLoader implements LibraryLoader {
+public class JarLibraryLoader implements ReportingLibraryLoader {
     private final CodeSource codeSource;
     private final String libraryPath;
+    private final File cacheDir;
+    private volatile Throwable failure;
 
     /**
      * Initialize a new instance that looks for shared libraries located in the same jar
@@ -39,8 +58,26 @@ public class JarLibraryLoader implements LibraryLoader {
      * @param libraryPath   Path prefix of shared libraries.
      */
     public JarLibraryLoader(CodeSource codeSource, String libraryPath) {
+        this(codeSource, libraryPath, cacheDir());
+    }
+
+    /**
+     * Initialize a new instance that looks for shared libraries located in the specified
+     * directory of the supplied code source, and caches extracted libraries in cacheDir.
+     *
+     * @param codeSource    Code source containing shared libraries.
+     * @param libraryPath   Path prefix of shared libraries.
+     * @param cacheDir      Directory to cache extracted libraries in, or null.
+     */
+    public JarLibraryLoader(CodeSource codeSource, String libraryPath, File cacheDir) {
         this.codeSource  = codeSource;
         this.libraryPath = libraryPath;
+        this.cacheDir    = cacheDir;
+    }
+
+    private static File cacheDir() {
+        String dir = System.getProperty("com.lambdaworks.jni.cache");
+        return dir != null && dir.length() > 0 ? new File(dir) : null;
     }
 
     /**
@@ -53,32 +90,53 @@ public class JarLibraryLoader implements LibraryLoader {
      */
     public boolean load(String name, boolean verify) {
         boolean loaded = false;
+        Throwable failure = null;
 
         try {
             Platform platform = Platform.detect();
             JarFile jar = new JarFile(codeSource.getLocation().getPath(), verify);
             try {
-                for (String path : libCandidates(platform, name)) {
+                List<String> candidates = libCandidates(platform, name);
+                failure = new FileNotFoundException("No library " + candidates + " in " + jar.getName());
+
+                for (String path : candidates) {
                     JarEntry entry = jar.getJarEntry(path);
                     if (entry == null) continue;
 
-                    File lib = extract(name, jar.getInputStream(entry));
-                    System.load(lib.getAbsolutePath());
-                    lib.delete();
+                    if (cacheDir != null) {
+                        File lib = cache(path, jar, entry, verify);
+                        System.load(lib.getAbsolutePath());
+                    } else {
+                        File lib = extract(name, jar.getInputStream(entry));
+                        System.load(lib.getAbsolutePath());
+                        lib.delete();
+                    }
 
-                    loaded = true;
+                    loaded  = true;
+                    failure = null;
                     break;
                 }
             } finally {
                 jar.close();
             }
         } catch (Throwable e) {
-            loaded = false;
+            loaded  = false;
+            failure = e;
         }
 
+        this.failure = failure;
         return loaded;
     }
 
+    /**
+     * The reason the last call to {@link #load} failed.
+     *
+     * @return The failure, or null.
+     */
+    public Throwable failure() {
+        return failure;
+    }
+
     /**
      * Extract a jar entry to a temp file.
      *
@@ -90,25 +148,111 @@ public class JarLibraryLoader implements LibraryLoader {
      * @throws IOException when an IO error occurs.
      */
     private static File extract(String name, InputStream is) throws IOException {
-        byte[] buf = new byte[4096];
-        int len;
-
         File lib = File.createTempFile(name, "lib");
-        FileOutputStream os = new FileOutputStream(lib);
+        copy(is, lib);
+        return lib;
+    }
+
+    /**
+     * Copy the contents of a stream to a file, deleting the file if the copy fails.
+     *
+     * @param is    Input stream.
+     * @param lib   File to write.
+     *
+     * @throws IOException when an IO error occurs.
+     */
+    private static void copy(InputStream is, File lib) throws IOException {
+        FileChannel channel = new FileOutputStream(lib).getChannel();
+        ReadableByteChannel src = Channels.newChannel(is);
+        boolean copied = false;
 
         try {
-            while ((len = is.read(buf)) > 0) {
-                os.write(buf, 0, len);
+            long pos = 0, len;
+            while ((len = channel.transferFrom(src, pos, 1 << 20)) > 0) {
+                pos += len;
             }
-        } catch (IOException e) {
-            lib.delete();
-            throw e;
+            copied = true;
         } finally {
-            os.close();
-            is.close();
+            channel.close();
+            src.close();
+            if (!copied) lib.delete();
         }
+    }
 
-        return lib;
+    /**
+     * Find or create the cached copy of a jar entry. The cached file is named after the
+     * entry's path, size and CRC from the jar's central directory, its digests from the
+     * manifest, and whether it was verified, so a cache hit needs neither the entry's
+     * contents nor a digest of the cached file. On a miss the entry is read in full, which
+     * verifies its signature when the jar is opened for verification, into a new file
+     * that only the owner can read and that nobody can write.
+     *
+     * Cached files are trusted because the cache directory is restricted so that only its
+     * owner can write to it, and loading fails when that is not possible.
+     *
+     * @param path      Path of the entry.
+     * @param jar       Jar containing the entry.
+     * @param entry     Jar entry.
+     * @param verify    Whether the jar was opened for verification.
+     *
+     * @return The cached file.
+     *
+     * @throws IOException when an IO error occurs.
+     * @throws GeneralSecurityException when SHA-256 is not available.
+     */
+    private File cache(String path, JarFile jar, JarEntry entry, boolean verify) throws IOException, GeneralSecurityException {
+        StringBuilder key = new StringBuilder(path);
+        key.append('\n').append(entry.getSize()).append('\n').append(entry.getCrc());
+        key.append('\n').append(verify ? "verified" : "unverified");
+
+        Manifest manifest = jar.getManifest();
+        Attributes attrs = manifest != null ? manifest.getAttributes(path) : null;
+        if (attrs != null) {
+            Map<String, String> digests = new TreeMap<String, String>();
+            for (Map.Entry<Object, Object> attr : attrs.entrySet()) {
+                String name = attr.getKey().toString();
+                if (name.endsWith("-Digest")) digests.put(name, attr.getValue().toString());
+            }
+            key.append('\n').append(digests);
+        }
+
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes("UTF-8"));
+        String file = path.substring(path.lastIndexOf('/') + 1);
+        File cached = new File(cacheDir, hex(digest, 16) + "-" + file);
+
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs() && !cacheDir.isDirectory()) {
+            throw new IOException("Unable to create " + cacheDir);
+        }
+        if (!cacheDir.setWritable(false, false) || !cacheDir.setWritable(true, true)) {
+            throw new IOException("Unable to restrict " + cacheDir + " to its owner");
+        }
+
+        if (cached.isFile()) return cached;
+
+        File tmp = File.createTempFile(file, ".tmp", cacheDir);
+        if (!tmp.setReadable(false, false) || !tmp.setReadable(true, true)) {
+            tmp.delete();
+            throw new IOException("Unable to restrict " + tmp + " to its owner");
+        }
+
+        copy(jar.getInputStream(entry), tmp);
+
+        tmp.setWritable(false, false);
+        if (!tmp.renameTo(cached)) {
+            tmp.delete();
+            if (!cached.isFile()) throw new IOException("Unable to cache " + cached);
+        }
+
+        return cached;
+    }
+
+    private static String hex(byte[] bytes, int len) {
+        StringBuilder sb = new StringBuilder(len * 2);
+        for (int i = 0; i < len; i++) {
+            sb.append(Character.forDigit(bytes[i] >> 4 & 0xf, 16));
+            sb.append(Character.forDigit(bytes[i] & 0xf, 16));
+        }
+        return sb.toString();
     }
 
     /**
@@ -126,8 +270,9 @@ public class JarLibraryLoader implements LibraryLoader {
 
         sb.append(libraryPath).append("/");
         sb.append(platform.arch).append("/");
-        sb.append(platform.os).append("/");
-        sb.append("lib").append(name);
+        sb.append(platform.os);
+        if (platform.libc == Platform.Libc.musl) sb.append("-musl");
+        sb.append("/lib").append(name);
 
         switch (platform.os) {
             case darwin:
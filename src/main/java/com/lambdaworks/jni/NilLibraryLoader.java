@@ -7,7 +7,7 @@ package com.lambdaworks.jni;
  *
  * @author Will Glozer
  */
-public class NilLibraryLoader implements LibraryLoader {
+public class NilLibraryLoader implements ReportingLibraryLoader {
     /**
      * Don't load a shared library.
      *
@@ -19,4 +19,13 @@ public class NilLibraryLoader implements LibraryLoader {
     public boolean load(String name, boolean verify) {
         return false;
     }
+
+    /**
+     * No load is attempted, so there is no failure.
+     *
+     * @return null.
+     */
+    public Throwable failure() {
+        return null;
+    }
 }
@@ -2,22 +2,27 @@
 
 package com.lambdaworks.jni;
 
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.regex.Pattern;
 
 import static java.lang.System.getProperty;
 import static java.util.regex.Pattern.CASE_INSENSITIVE;
 
 /**
- * A platform is a unique combination of CPU architecture and operating system. This class
- * attempts to determine the platform it is executing on by examining and normalizing the
- * <code>os.arch</code> and <code>os.name</code> system properties.
+ * A platform is a unique combination of CPU architecture and operating system, and on Linux
+ * the C library. This class attempts to determine the platform it is executing on by
+ * examining and normalizing the <code>os.arch</code> and <code>os.name</code> system
+ * properties.
  *
  * @author Will Glozer
  */
 public class Platform {
     public enum Arch {
-        x86   ("x86|i386"),
-        x86_64("x86_64|amd64");
+        x86    ("x86|i386"),
+        x86_64 ("x86_64|amd64"),
+        aarch64("aarch64|arm64");
 
         Pattern pattern;
 
@@ -38,12 +43,21 @@ public class Platform {
         }
     }
 
+    public enum Libc {
+        glibc,
+        musl
+    }
+
+    private static volatile Libc processLibc;
+
     public final Arch arch;
     public final OS os;
+    public final Libc libc;
 
-    private Platform(Arch arch, OS os) {
+    private Platform(Arch arch, OS os, Libc libc) {
         this.arch = arch;
         this.os = os;
+        this.libc = libc;
     }
 
     /**
@@ -61,7 +75,7 @@ public class Platform {
             if (arch.pattern.matcher(osArch).matches()) {
                 for (OS os : OS.values()) {
                     if (os.pattern.matcher(osName).matches()) {
-                        return new Platform(arch, os);
+                        return new Platform(arch, os, os == OS.linux ? libc() : null);
                     }
                 }
             }
@@ -70,4 +84,42 @@ public class Platform {
         String msg = String.format("Unsupported platform %s %s", osArch, osName);
         throw new UnsupportedPlatformException(msg);
     }
+
+    /**
+     * Detect the C library of the running Linux process, musl when the musl dynamic linker
+     * {@code ld-musl-[arch].so.1} is mapped into it according to {@code /proc/self/maps}
+     * and glibc otherwise. A glibc system that merely has musl installed is still glibc.
+     * The system property {@code com.lambdaworks.jni.libc} may be set to {@code glibc} or
+     * {@code musl} to override detection.
+     *
+     * @return The C library.
+     */
+    private static Libc libc() {
+        String libc = getProperty("com.lambdaworks.jni.libc");
+        if (libc != null) return Libc.valueOf(libc);
+
+        Libc detected = processLibc;
+        if (detected == null) processLibc = detected = mapped("/ld-musl-") ? Libc.musl : Libc.glibc;
+        return detected;
+    }
+
+    /**
+     * Whether a file whose path contains name is mapped into the running process.
+     */
+    private static boolean mapped(String name) {
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader("/proc/self/maps"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.contains(name)) return true;
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // no procfs, assume glibc
+        }
+        return false;
+    }
 }
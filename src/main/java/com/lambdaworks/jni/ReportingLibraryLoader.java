@@ -0,0 +1,20 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.jni;
+
+/**
+ * A {@link LibraryLoader} that reports why loading a library failed. All of the
+ * loaders created by {@link LibraryLoaders} implement this interface.
+ *
+ * @author agent
+ */
+public interface ReportingLibraryLoader extends LibraryLoader {
+    /**
+     * The reason the last call to {@link #load} failed. A {@link java.io.FileNotFoundException}
+     * indicates there is no library for the current platform, and an
+     * {@link UnsupportedPlatformException} that the platform is not recognized.
+     *
+     * @return The failure, or null if the last load succeeded or was not attempted.
+     */
+    Throwable failure();
+}
@@ -2,13 +2,17 @@
 
 package com.lambdaworks.jni;
 
+import java.io.FileNotFoundException;
+
 /**
  * A native library loader that simply invokes {@link System#loadLibrary}. The shared
  * library path and filename are platform specific.
  *
  * @author Will Glozer
  */
-public class SysLibraryLoader implements LibraryLoader {
+public class SysLibraryLoader implements ReportingLibraryLoader {
+    private volatile Throwable failure;
+
     /**
      * Load a shared library.
      *
@@ -23,10 +27,27 @@ public class SysLibraryLoader implements LibraryLoader {
         try {
             System.loadLibrary(name);
             loaded = true;
+            failure = null;
+        } catch (UnsatisfiedLinkError e) {
+            loaded = false;
+            failure = e;
+            if (e.getMessage() != null && e.getMessage().startsWith("no " + name + " in ")) {
+                failure = new FileNotFoundException(e.getMessage()).initCause(e);
+            }
         } catch (Throwable e) {
             loaded = false;
+            failure = e;
         }
 
         return loaded;
     }
+
+    /**
+     * The reason the last call to {@link #load} failed.
+     *
+     * @return The failure, or null.
+     */
+    public Throwable failure() {
+        return failure;
+    }
 }
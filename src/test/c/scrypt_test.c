@@ -0,0 +1,222 @@
+/*
+ * Known answer tests for every smix kernel built into the library, using the
+ * test vectors from RFC 7914.  Run with "make check", which may be pointed at
+ * an emulator to test a cross-compiled build, for example:
+ *
+ *   make ARCH=aarch64 CC=aarch64-linux-gnu-gcc \
+ *       EMULATOR="qemu-aarch64 -L /usr/aarch64-linux-gnu" check
+ */
+#include "scrypt_platform.h"
+
+#include <pthread.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <string.h>
+
+#include "crypto_scrypt.h"
+#include "crypto_scrypt_arena.h"
+#include "crypto_scrypt_smix.h"
+
+struct vector {
+	const char * passwd;
+	const char * salt;
+	uint64_t N;
+	uint32_t r;
+	uint32_t p;
+	const char * dk;
+};
+
+static const struct vector vectors[] = {
+	{ "", "", 16, 1, 1,
+	    "77d6576238657b203b19ca42c18a0497f16b4844e3074ae8dfdffa3fede21442"
+	    "fcd0069ded0948f8326a753a0fc81f17e8d3e0fb2e0d3628cf35e20c38d18906" },
+	{ "password", "NaCl", 1024, 8, 16,
+	    "fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b373162"
+	    "2eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640" },
+	{ "pleaseletmein", "SodiumChloride", 16384, 8, 1,
+	    "7023bdcb3afd7348461c06cd81fd38ebfda8fbba904f8e3ea9b543f6545da1f2"
+	    "d5432955613f0fcf62d49705242a9af9e61e85dc0d651e40dfcf017b45575887" },
+};
+
+static int
+check(const char * name)
+{
+	uint8_t buf[64];
+	char hex[129];
+	size_t i, j;
+	int failures = 0;
+
+	for (i = 0; i < sizeof(vectors) / sizeof(vectors[0]); i++) {
+		const struct vector * v = &vectors[i];
+
+		if (crypto_scrypt((const uint8_t *)v->passwd, strlen(v->passwd),
+		    (const uint8_t *)v->salt, strlen(v->salt), v->N, v->r, v->p,
+		    buf, sizeof(buf))) {
+			printf("%s: vector %zu: error\n", name, i);
+			failures++;
+			continue;
+		}
+
+		for (j = 0; j < sizeof(buf); j++)
+			sprintf(&hex[j * 2], "%02x", buf[j]);
+
+		if (strcmp(hex, v->dk) != 0) {
+			printf("%s: vector %zu: got %s\n", name, i, hex);
+			failures++;
+		}
+	}
+
+	printf("%s: %s\n", name, failures ? "FAIL" : "ok");
+	return (failures);
+}
+
+/* Lanes in each batch, enough for one group of eight and a remainder. */
+#define BATCH 11
+
+static int
+check_batch(void)
+{
+	const uint8_t * passwd[BATCH], * salt[BATCH];
+	size_t passwdlen[BATCH], saltlen[BATCH];
+	static uint8_t buf[BATCH * 64];
+	uint8_t dk[64];
+	char hex[129];
+	size_t i, j, k;
+	int failures = 0;
+
+	for (i = 0; i < sizeof(vectors) / sizeof(vectors[0]); i++) {
+		const struct vector * v = &vectors[i];
+
+		/*
+		 * Even lanes derive the vector's key and odd lanes the key for
+		 * another password, so lanes mixed up by the kernel fail.
+		 */
+		for (k = 0; k < BATCH; k++) {
+			passwd[k] = (const uint8_t *)((k & 1) ?
+			    "password0" : v->passwd);
+			passwdlen[k] = strlen((const char *)passwd[k]);
+			salt[k] = (const uint8_t *)v->salt;
+			saltlen[k] = strlen(v->salt);
+		}
+
+		if (crypto_scrypt_batch(passwd, passwdlen, salt, saltlen,
+		    BATCH, v->N, v->r, v->p, buf, 64) ||
+		    crypto_scrypt((const uint8_t *)"password0", 9,
+		    salt[0], saltlen[0], v->N, v->r, v->p, dk, sizeof(dk))) {
+			printf("batch: vector %zu: error\n", i);
+			failures++;
+			continue;
+		}
+
+		for (k = 0; k < BATCH; k++) {
+			if (k & 1) {
+				if (memcmp(&buf[k * 64], dk, 64) != 0) {
+					printf("batch: vector %zu: lane %zu "
+					    "differs\n", i, k);
+					failures++;
+				}
+				continue;
+			}
+
+			for (j = 0; j < 64; j++)
+				sprintf(&hex[j * 2], "%02x", buf[k * 64 + j]);
+
+			if (strcmp(hex, v->dk) != 0) {
+				printf("batch: vector %zu: lane %zu: got %s\n",
+				    i, k, hex);
+				failures++;
+			}
+		}
+	}
+
+	printf("batch%s: %s\n",
+#ifdef HAVE_SMIX_X8
+	    crypto_scrypt_smix_x8_usable(16, 1) ? " (x8)" : "",
+#else
+	    "",
+#endif
+	    failures ? "FAIL" : "ok");
+	return (failures);
+}
+
+/* Size of the arenas used to test the cache, smaller than a huge page. */
+#define ARENA_LEN ((size_t)(1024) * 1024)
+
+static int
+cache_arena(void)
+{
+	void * base;
+
+	if (crypto_scrypt_arena_alloc(&base, ARENA_LEN) == NULL)
+		return (-1);
+	return (crypto_scrypt_arena_free(base, ARENA_LEN));
+}
+
+static void *
+cache_arena_thread(void * cookie)
+{
+
+	*(int *)(cookie) = cache_arena();
+	return (NULL);
+}
+
+static int
+check_arena(void)
+{
+	pthread_t thread;
+	int failures = 0, rc = -1;
+
+	crypto_scrypt_arena_release();
+	crypto_scrypt_arena_limit(ARENA_LEN);
+
+	/* An arena within the limit is cached until released. */
+	if (cache_arena() || crypto_scrypt_arena_cached() != ARENA_LEN)
+		failures++;
+	crypto_scrypt_arena_release();
+	if (crypto_scrypt_arena_cached() != 0)
+		failures++;
+
+	/* The limit covers all threads together. */
+	if (cache_arena() || pthread_create(&thread, NULL,
+	    cache_arena_thread, &rc) || pthread_join(thread, NULL) || rc ||
+	    crypto_scrypt_arena_cached() != ARENA_LEN)
+		failures++;
+	crypto_scrypt_arena_release();
+
+	/* A limit of 0 disables the cache. */
+	crypto_scrypt_arena_limit(0);
+	if (cache_arena() || crypto_scrypt_arena_cached() != 0)
+		failures++;
+
+	crypto_scrypt_arena_limit(SCRYPT_ARENA_CACHE_LIMIT);
+
+	printf("arena: %s\n", failures ? "FAIL" : "ok");
+	return (failures);
+}
+
+int
+main(void)
+{
+	int failures = 0;
+
+	printf("selected: %s\n", crypto_scrypt_select_kernel());
+	failures += check("selected");
+
+	crypto_scrypt_smix = crypto_scrypt_smix_scalar;
+	failures += check("scalar");
+
+#ifdef HAVE_SMIX_SSE2
+	crypto_scrypt_smix = crypto_scrypt_smix_sse2;
+	failures += check("sse2");
+#endif
+
+#ifdef HAVE_SMIX_NEON
+	crypto_scrypt_smix = crypto_scrypt_smix_neon;
+	failures += check("neon");
+#endif
+
+	failures += check_batch();
+	failures += check_arena();
+
+	return (failures ? 1 : 0);
+}
@@ -0,0 +1,93 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.test;
+
+import com.lambdaworks.crypto.HmacSHA256;
+import com.lambdaworks.crypto.PBKDF;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static com.lambdaworks.crypto.test.CryptoTestUtil.*;
+
+public class HmacSHA256Test {
+    @Test
+    public void hmac_sha256_rfc4231() throws Exception {
+        HmacSHA256 mac = new HmacSHA256();
+        byte[] key = new byte[20];
+
+        Arrays.fill(key, (byte) 0x0b);
+        mac.init(key);
+        mac.update("Hi There".getBytes("UTF-8"));
+        assertArrayEquals(decode("b0344c61d8db38535ca8afceaf0bf12b881dc200c9833da726e9376c2e32cff7"), mac.doFinal());
+
+        mac.init("Jefe".getBytes("UTF-8"));
+        mac.update("what do ya want for nothing?".getBytes("UTF-8"));
+        assertArrayEquals(decode("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843"), mac.doFinal());
+
+        key = new byte[131];
+        Arrays.fill(key, (byte) 0xaa);
+        mac.init(key);
+        mac.update("Test Using Larger Than Block-Size Key - Hash Key First".getBytes("UTF-8"));
+        assertArrayEquals(decode("60e431591ee0b67f0d8a26aacbf5b77f8e0bc6213728c5140546040f0ee37f54"), mac.doFinal());
+    }
+
+    @Test
+    public void reuse() throws Exception {
+        HmacSHA256 mac = new HmacSHA256();
+        mac.init("Jefe".getBytes("UTF-8"));
+
+        byte[] data = "what do ya want for nothing?".getBytes("UTF-8");
+        byte[] expected = decode("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843");
+
+        for (int i = 0; i < 3; i++) {
+            mac.update(data, 0, 10);
+            mac.update(data, 10, data.length - 10);
+            assertArrayEquals(expected, mac.doFinal());
+        }
+    }
+
+    @Test
+    public void clear() throws Exception {
+        HmacSHA256 mac = new HmacSHA256();
+        mac.init("Jefe".getBytes("UTF-8"));
+        mac.update("what do ya want for nothing?".getBytes("UTF-8"));
+        mac.clear();
+
+        assertArrayEquals(new HmacSHA256().doFinal(), mac.doFinal());
+
+        mac.init("Jefe".getBytes("UTF-8"));
+        mac.update("what do ya want for nothing?".getBytes("UTF-8"));
+        assertArrayEquals(decode("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843"), mac.doFinal());
+    }
+
+    @Test
+    public void local_cleared_after_pbkdf2() throws Exception {
+        PBKDF.pbkdf2("HmacSHA256", "password".getBytes("UTF-8"), "salt".getBytes("UTF-8"), 2, 32);
+        assertArrayEquals(new HmacSHA256().doFinal(), HmacSHA256.local().doFinal());
+    }
+
+    @Test
+    public void jce() throws Exception {
+        Random random = new Random(0);
+        HmacSHA256 mac = HmacSHA256.local();
+        Mac jce = Mac.getInstance("HmacSHA256");
+
+        for (int len = 0; len < 300; len += 7) {
+            byte[] key  = new byte[1 + random.nextInt(100)];
+            byte[] data = new byte[len];
+            random.nextBytes(key);
+            random.nextBytes(data);
+
+            mac.init(key);
+            mac.update(data);
+            jce.init(new SecretKeySpec(key, "HmacSHA256"));
+
+            assertArrayEquals(jce.doFinal(data), mac.doFinal());
+        }
+    }
+}
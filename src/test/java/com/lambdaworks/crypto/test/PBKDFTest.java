@@ -2,10 +2,17 @@
 
 package com.lambdaworks.crypto.test;
 
+import com.lambdaworks.crypto.HmacSHA256;
 import com.lambdaworks.crypto.PBKDF;
+import com.lambdaworks.crypto.SCrypt;
 import org.junit.Test;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.math.BigInteger;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.*;
 import static com.lambdaworks.crypto.test.CryptoTestUtil.*;
@@ -138,4 +145,102 @@ public class PBKDFTest {
 
         assertArrayEquals(decode(DK), PBKDF.pbkdf2(alg, P, S, c, dkLen));
     }
+
+    @Test
+    public void pbkdf2_hmac_sha256_jce() throws Exception {
+        byte[] P = "passwordPASSWORDpassword".getBytes("UTF-8");
+        byte[] S = "saltSALTsaltSALTsaltSALTsaltSALTsalt".getBytes("UTF-8");
+        int c = 1000;
+        int dkLen = 100;
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(P, "HmacSHA256"));
+        byte[] DK = new byte[dkLen];
+        PBKDF.pbkdf2(mac, S, c, DK, dkLen);
+
+        assertArrayEquals(DK, PBKDF.pbkdf2("HmacSHA256", P, S, c, dkLen));
+    }
+
+    @Test
+    public void pbkdf2_parallel() throws Exception {
+        byte[] P = "passwordPASSWORDpassword".getBytes("UTF-8");
+        byte[] S = "saltSALTsaltSALTsaltSALTsaltSALTsalt".getBytes("UTF-8");
+        int c = 4096;
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (String alg : new String[] { "HmacSHA1", "HmacSHA256" }) {
+                for (int dkLen : new int[] { 0, 1, 20, 32, 100 }) {
+                    byte[] DK = PBKDF.pbkdf2(alg, P, S, c, dkLen, executor);
+                    assertArrayEquals(PBKDF.pbkdf2(alg, P, S, c, dkLen), DK);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void pbkdf2_parallel_empty_key() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "salt".getBytes("UTF-8");
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+                fail("No blocks to run");
+            }
+        };
+
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(P, "HmacSHA1"));
+        PBKDF.pbkdf2(mac, S, 1, new byte[0], 0, executor);
+
+        HmacSHA256 hmac = new HmacSHA256();
+        hmac.init(P);
+        PBKDF.pbkdf2(hmac, S, 1, new byte[0], 0, executor);
+
+        assertEquals(0, PBKDF.pbkdf2("HmacSHA256", P, S, 1, 0, executor).length);
+    }
+
+    @Test
+    public void pbkdf2_invalid_iterations() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "salt".getBytes("UTF-8");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            for (String alg : new String[] { "HmacSHA1", "HmacSHA256" }) {
+                for (int c : new int[] { 0, -1, Integer.MIN_VALUE }) {
+                    try {
+                        PBKDF.pbkdf2(alg, P, S, c, 32);
+                        fail("Iteration count " + c + " accepted");
+                    } catch (IllegalArgumentException e) {
+                        // expected
+                    }
+
+                    try {
+                        PBKDF.pbkdf2(alg, P, S, c, 32, executor);
+                        fail("Iteration count " + c + " accepted");
+                    } catch (IllegalArgumentException e) {
+                        // expected
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void pbkdf2N_invalid_iterations() throws Exception {
+        if (!SCrypt.preload()) return;
+
+        for (int c : new int[] { 0, -1, Integer.MIN_VALUE }) {
+            try {
+                PBKDF.pbkdf2N("password".getBytes("UTF-8"), "salt".getBytes("UTF-8"), c, 32);
+                fail("Iteration count " + c + " accepted");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
 }
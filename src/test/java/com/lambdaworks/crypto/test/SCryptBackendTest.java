@@ -0,0 +1,41 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.test;
+
+import com.lambdaworks.crypto.SCrypt;
+import com.lambdaworks.crypto.SCryptBackend;
+import com.lambdaworks.crypto.SCryptMetrics;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SCryptBackendTest {
+    @Test
+    public void backend() throws Exception {
+        boolean loaded = SCrypt.preload();
+        SCryptBackend backend = SCrypt.backend();
+
+        assertEquals(loaded, backend.isNative());
+        assertEquals(SCrypt.nativeKernel(), backend.kernel());
+
+        if (backend.isNative()) {
+            assertEquals(SCryptMetrics.NATIVE, backend.name());
+            assertNull(backend.reason());
+            assertNotNull(backend.kernel());
+        } else {
+            assertEquals(SCryptMetrics.JAVA, backend.name());
+            assertNotNull(backend.reason());
+            assertFalse(backend.reason() == SCryptBackend.Reason.PENDING);
+            assertTrue(backend.toString().contains(backend.reason().name()));
+        }
+    }
+
+    @Test
+    public void metrics() throws Exception {
+        SCrypt.preload();
+        SCryptBackend backend = SCrypt.backend();
+
+        assertEquals(backend.name(), SCryptMetrics.metrics().getBackend());
+        assertEquals(backend.isNative(), SCryptMetrics.metrics().getFallbackReason() == null);
+    }
+}
@@ -0,0 +1,167 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.test;
+
+import com.lambdaworks.crypto.PBKDF;
+import com.lambdaworks.crypto.SCrypt;
+import com.lambdaworks.crypto.SCryptContext;
+import com.lambdaworks.crypto.SCryptContextPool;
+import com.lambdaworks.crypto.SCryptState;
+import org.junit.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+import static com.lambdaworks.crypto.test.CryptoTestUtil.*;
+
+public class SCryptContextTest {
+    String DK = "fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b3731622eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640";
+
+    @Test
+    public void reuse() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "NaCl".getBytes("UTF-8");
+
+        SCryptContext ctx = new SCryptContext(1024, 8, 16);
+
+        assertArrayEquals(decode(DK), ctx.scrypt(P, S, 64));
+        assertArrayEquals(decode(DK), ctx.scrypt(P, S, 64));
+    }
+
+    @Test
+    public void parallelRejected() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "NaCl".getBytes("UTF-8");
+
+        Executor rejecting = new Executor() {
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+
+        SCryptContext ctx = new SCryptContext(1024, 8, 16);
+        assertArrayEquals(decode(DK), ctx.scrypt(P, S, 64, rejecting));
+    }
+
+    @Test
+    public void pool() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "NaCl".getBytes("UTF-8");
+
+        SCryptContextPool pool = new SCryptContextPool(1024, 8, 16, 1);
+
+        SCryptContext ctx = pool.acquire();
+        pool.release(ctx);
+        assertSame(ctx, pool.acquire());
+        pool.release(ctx);
+
+        assertArrayEquals(decode(DK), pool.scrypt(P, S, 64));
+    }
+
+    @Test
+    public void cleared() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "NaCl".getBytes("UTF-8");
+
+        SCryptContextPool pool = new SCryptContextPool(16, 2, 2, 1);
+        SCryptContext ctx = pool.acquire();
+        ctx.scrypt(P, S, 64);
+
+        assertTrue(isZero(field(ctx, "B")));
+        assertTrue(isZero(field(ctx, "B32")));
+        assertFalse(isZero(field(ctx, "V")));
+
+        pool.release(ctx);
+        assertTrue(isZero(field(ctx, "V")));
+        assertTrue(isZero(field(ctx, "XY")));
+
+        assertArrayEquals(SCrypt.scryptJ(P, S, 16, 2, 2, 64), pool.scrypt(P, S, 64));
+    }
+
+    @Test
+    public void preferredProvider() throws Exception {
+        Field builtin = PBKDF.class.getDeclaredField("builtin");
+        builtin.setAccessible(true);
+        Object saved = builtin.get(null);
+
+        builtin.set(null, Boolean.FALSE);
+        try {
+            for (String passwd : new String[] { "", "password" }) {
+                byte[] P = passwd.getBytes("UTF-8");
+                byte[] S = "NaCl".getBytes("UTF-8");
+                byte[] expected = SCrypt.scryptJ(P, S, 16, 2, 2, 64);
+
+                SCryptContext ctx = new SCryptContext(16, 2, 2);
+                assertNotNull(field(field(ctx, "mac"), "jce"));
+                assertArrayEquals(expected, ctx.scrypt(P, S, 64));
+
+                SCryptState state = new SCryptState(P, S, 16, 2, 2, 64);
+                assertNotNull(field(field(state, "mac"), "jce"));
+                assertArrayEquals(expected, state.finish(8));
+            }
+        } finally {
+            builtin.set(null, saved);
+        }
+    }
+
+    private static Object field(Object obj, String name) throws Exception {
+        Field field = obj.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(obj);
+    }
+
+    private static boolean isZero(Object array) {
+        for (int i = 0; i < Array.getLength(array); i++) {
+            Object element = Array.get(array, i);
+            if (element == null) continue;
+            if (element.getClass().isArray()) {
+                if (!isZero(element)) return false;
+            } else if (((Number) element).longValue() != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseTwice() throws Exception {
+        SCryptContextPool pool = new SCryptContextPool(16, 1, 1, 1);
+        SCryptContext ctx = pool.acquire();
+        pool.release(ctx);
+        pool.release(ctx);
+    }
+
+    @Test
+    public void releaseTwiceWithCapacity() throws Exception {
+        SCryptContextPool pool = new SCryptContextPool(16, 1, 1, 4);
+        SCryptContext ctx = pool.acquire();
+        pool.release(ctx);
+
+        try {
+            pool.release(ctx);
+            fail("Context released twice");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        SCryptContext a = pool.acquire();
+        SCryptContext b = pool.acquire();
+        assertNotSame(a, b);
+        pool.release(a);
+        pool.release(b);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseForeign() throws Exception {
+        SCryptContextPool pool = new SCryptContextPool(16, 1, 1, 4);
+        pool.release(new SCryptContext(16, 1, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalid_N() throws Exception {
+        new SCryptContext(3, 1, 1);
+    }
+}
@@ -0,0 +1,161 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.test;
+
+import com.lambdaworks.crypto.SCrypt;
+import com.lambdaworks.crypto.SCryptExecutor;
+import com.lambdaworks.crypto.SCryptUtil;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SCryptExecutorTest {
+    String passwd = "secret";
+
+    @Test
+    public void async() throws Exception {
+        SCryptExecutor executor = new SCryptExecutor(2, 64 * 1024 * 1024, 16);
+        try {
+            String hashed = SCryptUtil.scryptAsync(passwd, 1024, 8, 1, executor).get();
+            assertTrue(SCryptUtil.checkAsync(passwd, hashed, executor).get());
+            assertFalse(SCryptUtil.checkAsync("s3cr3t", hashed, executor).get());
+            assertEquals(0, executor.memoryInUse());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shared() throws Exception {
+        String hashed = SCryptUtil.scryptAsync(passwd, 1024, 8, 1).get();
+        assertTrue(SCryptUtil.checkAsync(passwd, hashed).get());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void overBudget() throws Exception {
+        SCryptExecutor executor = new SCryptExecutor(1, 1024 * 1024, 16);
+        try {
+            SCryptUtil.scryptAsync(passwd, 16384, 8, 1, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void admission() throws Exception {
+        long bytes = SCryptExecutor.memory(1024, 8, 1);
+        SCryptExecutor executor = new SCryptExecutor(2, bytes + 1024, 1);
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+
+        Callable<Boolean> blocked = new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                running.countDown();
+                finish.await();
+                return true;
+            }
+        };
+
+        try {
+            Future<Boolean> first = executor.submit(1024, 8, 1, blocked);
+            running.await();
+            assertEquals(bytes, executor.memoryInUse());
+
+            // the second task waits in the queue without taking the idle thread
+            Future<Boolean> second = executor.submit(1024, 8, 1, blocked);
+            Thread.sleep(100);
+            assertFalse(second.isDone());
+            assertEquals(1, executor.queued());
+
+            // the third is rejected
+            try {
+                executor.submit(1024, 8, 1, blocked);
+                fail("queue full");
+            } catch (RejectedExecutionException e) {
+                assertEquals(1, executor.queued());
+            }
+
+            // a task within the budget but not a multiple of 1024 bytes is admitted
+            SCryptExecutor unaligned = new SCryptExecutor(1, SCryptExecutor.memory(16, 1, 1), 1);
+            try {
+                assertTrue(unaligned.submit(16, 1, 1, new Callable<Boolean>() {
+                    public Boolean call() {
+                        return true;
+                    }
+                }).get(10, TimeUnit.SECONDS));
+            } finally {
+                unaligned.shutdown();
+            }
+
+            finish.countDown();
+            assertTrue(first.get());
+            assertTrue(second.get());
+            assertEquals(0, executor.memoryInUse());
+        } finally {
+            finish.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void call() throws Exception {
+        final SCryptExecutor executor = new SCryptExecutor(1, 64 * 1024 * 1024, 16);
+        try {
+            String result = executor.call(1024, 8, 1, new Callable<String>() {
+                public String call() throws Exception {
+                    // nested calls run inline rather than deadlocking the single thread
+                    return executor.call(1024, 8, 1, new Callable<String>() {
+                        public String call() {
+                            return Thread.currentThread().getName();
+                        }
+                    });
+                }
+            });
+
+            assertTrue(result.startsWith("scrypt-"));
+            assertEquals(1, executor.started());
+            assertTrue(executor.maxWaitTime(TimeUnit.NANOSECONDS) <= executor.waitTime(TimeUnit.NANOSECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void offload() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "NaCl".getBytes("UTF-8");
+
+        boolean loaded = SCrypt.preload();
+        SCryptExecutor executor = new SCryptExecutor(2, 64 * 1024 * 1024, 16);
+        try {
+            SCrypt.offload(executor);
+            assertSame(executor, SCrypt.offload());
+            byte[] expected = SCrypt.scryptJ(P, S, 1024, 8, 1, 64);
+            assertArrayEquals(expected, SCrypt.scrypt(P, S, 1024, 8, 1, 64));
+
+            byte[] DK = new byte[64];
+            SCrypt.scrypt(P, S, 1024, 8, 1, DK, 64);
+            assertArrayEquals(expected, DK);
+
+            ByteBuffer buf = ByteBuffer.allocateDirect(64);
+            SCrypt.scrypt(ByteBuffer.wrap(P), ByteBuffer.wrap(S), 1024, 8, 1, buf);
+            buf.get(DK);
+            assertArrayEquals(expected, DK);
+
+            assertArrayEquals(expected, SCrypt.scryptBatch(new byte[][] { P }, new byte[][] { S }, 1024, 8, 1, 64)[0]);
+
+            // only native calls are offloaded
+            assertEquals(loaded ? 4 : 0, executor.started());
+        } finally {
+            SCrypt.offload(null);
+            executor.shutdown();
+        }
+    }
+}
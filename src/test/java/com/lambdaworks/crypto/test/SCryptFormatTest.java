@@ -0,0 +1,126 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.test;
+
+import com.lambdaworks.codec.Base64;
+import com.lambdaworks.crypto.SCryptFormat;
+import com.lambdaworks.crypto.SCryptUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SCryptFormatTest {
+    byte[] salt = new byte[16];
+    byte[] key  = new byte[32];
+
+    @Test
+    public void roundtrip() throws Exception {
+        String hashed = SCryptUtil.scrypt("secret", 16384, 8, 1);
+        String[] parts = hashed.split("\\$");
+
+        int params = SCryptFormat.parse(hashed, salt, key);
+        assertEquals(16384, SCryptFormat.N(params));
+        assertEquals(8, SCryptFormat.r(params));
+        assertEquals(1, SCryptFormat.p(params));
+        assertArrayEquals(Base64.decode(parts[3].toCharArray()), salt);
+        assertArrayEquals(Base64.decode(parts[4].toCharArray()), key);
+
+        assertEquals(hashed, SCryptFormat.format(params, salt, key));
+        assertEquals(hashed.length(), SCryptFormat.length(params, salt.length, key.length));
+
+        byte[] ascii = hashed.getBytes("US-ASCII");
+        byte[] framed = new byte[ascii.length + 2];
+        System.arraycopy(ascii, 0, framed, 1, ascii.length);
+        Arrays.fill(key, (byte) 0);
+        assertEquals(params, SCryptFormat.parse(framed, 1, ascii.length, salt, key));
+        assertArrayEquals(Base64.decode(parts[4].toCharArray()), key);
+
+        byte[] out = new byte[ascii.length];
+        assertEquals(ascii.length, SCryptFormat.format(params, salt, key, out, 0));
+        assertArrayEquals(ascii, out);
+    }
+
+    @Test
+    public void params() throws Exception {
+        assertEquals(0xe0801, SCryptFormat.params(16384, 8, 1));
+        assertEquals(0x1ffff, SCryptFormat.params(2, 255, 255));
+        assertEquals("$s0$1ffff$", SCryptFormat.format(0x1ffff, new byte[0], new byte[0]).substring(0, 10));
+    }
+
+    @Test
+    public void invalid() throws Exception {
+        String hashed = SCryptUtil.scrypt("secret", 1024, 8, 1);
+        String[] parts = hashed.split("\\$");
+
+        String[] invalid = {
+            "",
+            "$s1$" + parts[2] + "$" + parts[3] + "$" + parts[4],
+            "$s0$$" + parts[3] + "$" + parts[4],
+            "$s0$-a0801$" + parts[3] + "$" + parts[4],
+            "$s0$100a0801$" + parts[3] + "$" + parts[4],
+            "$s0$a0001$" + parts[3] + "$" + parts[4],
+            "$s0$a0800$" + parts[3] + "$" + parts[4],
+            "$s0$1f0801$" + parts[3] + "$" + parts[4],
+            "$s0$" + parts[2] + "$" + parts[3],
+            "$s0$" + parts[2] + "$" + parts[3] + "$" + parts[4] + "$",
+            "$s0$" + parts[2] + "$" + parts[3].substring(4) + "$" + parts[4],
+            "$s0$" + parts[2] + "$" + parts[3] + "$" + parts[4].replace(parts[4].charAt(0), '!'),
+            "$s0$" + parts[2] + "$" + parts[3] + "$" + parts[4].replace('=', 'A'),
+        };
+
+        for (String s : invalid) {
+            try {
+                SCryptFormat.parse(s, salt, key);
+                fail("accepted " + s);
+            } catch (IllegalArgumentException e) {
+            }
+        }
+    }
+
+    @Test
+    public void lengths() throws Exception {
+        String hashed = SCryptUtil.scrypt("secret", 1024, 8, 1);
+        assertEquals(16, SCryptFormat.saltLength(hashed));
+        assertEquals(32, SCryptFormat.keyLength(hashed));
+
+        for (int len = 0; len < 8; len++) {
+            byte[] bytes = new byte[len];
+            for (boolean padded : new boolean[] { true, false }) {
+                String field = new String(Base64.encode(bytes, padded));
+                String s = "$s0$a0801$" + field + "$" + field;
+                assertEquals(s, len, SCryptFormat.saltLength(s));
+                assertEquals(s, len, SCryptFormat.keyLength(s));
+
+                byte[] salt = new byte[len];
+                byte[] key  = new byte[len];
+                assertEquals(0xa0801, SCryptFormat.parse(s, salt, key));
+            }
+        }
+
+        for (String s : new String[] { "", "$s0$a0801", "$s0$a0801$AAAAA$AAAA" }) {
+            try {
+                SCryptFormat.saltLength(s);
+                fail("accepted " + s);
+            } catch (IllegalArgumentException e) {
+            }
+        }
+    }
+
+    @Test
+    public void base64() throws Exception {
+        for (int len = 0; len < 8; len++) {
+            byte[] src = new byte[len];
+            for (int i = 0; i < len; i++) src[i] = (byte) (i * 97 + 13);
+
+            char[] chars = new char[12];
+            int n = Base64.encode(src, 0, len, chars, 0);
+            assertEquals(new String(Base64.encode(src)), new String(chars, 0, n));
+
+            byte[] dst = new byte[len];
+            assertEquals(len, Base64.decode(new String(chars, 0, n), 0, n, dst, 0));
+            assertArrayEquals(src, dst);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.test;
+
+import com.lambdaworks.crypto.SCrypt;
+import com.lambdaworks.crypto.SCryptListener;
+import com.lambdaworks.crypto.SCryptMetrics;
+import com.lambdaworks.crypto.SCryptUtil;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SCryptMetricsTest {
+    @Test
+    public void hashed() throws Exception {
+        SCrypt.preload();
+        SCryptMetrics metrics = SCryptMetrics.metrics();
+        long hashes = metrics.getNativeHashCount() + metrics.getJavaHashCount();
+        long allocated = metrics.getAllocatedBytes();
+
+        SCrypt.scrypt("secret".getBytes("UTF-8"), "salt".getBytes("UTF-8"), 1024, 8, 1, 32);
+
+        assertEquals(hashes + 1, metrics.getNativeHashCount() + metrics.getJavaHashCount());
+        assertEquals(allocated + 128 * 8 * 1024, metrics.getAllocatedBytes());
+        assertEquals(metrics.isNativeLibraryLoaded(), metrics.getNativeHashCount() > 0);
+
+        String backend = metrics.isNativeLibraryLoaded() ? SCryptMetrics.NATIVE : SCryptMetrics.JAVA;
+        long[] histogram = metrics.getLatencyHistograms().get(backend + " N=1024 r=8 p=1");
+        assertNotNull(histogram);
+        long total = 0;
+        for (long count : histogram) total += count;
+        assertTrue(total > 0);
+    }
+
+    @Test
+    public void histogramParams() throws Exception {
+        SCrypt.preload();
+        SCryptMetrics metrics = SCryptMetrics.metrics();
+        String backend = metrics.isNativeLibraryLoaded() ? SCryptMetrics.NATIVE : SCryptMetrics.JAVA;
+
+        // with p packed into 15 bits these two shared a histogram labelled r=2 p=1
+        SCrypt.scrypt("secret".getBytes("UTF-8"), "salt".getBytes("UTF-8"), 2, 1, 32769, 32);
+        SCrypt.scrypt("secret".getBytes("UTF-8"), "salt".getBytes("UTF-8"), 2, 2, 1, 32);
+
+        Map<String, long[]> histograms = metrics.getLatencyHistograms();
+        assertNotNull(histograms.get(backend + " N=2 r=1 p=32769"));
+        assertNotNull(histograms.get(backend + " N=2 r=2 p=1"));
+    }
+
+    @Test
+    public void listener() throws Exception {
+        final List<String> events = new ArrayList<String>();
+        SCryptListener listener = new SCryptListener() {
+            public void hashed(String backend, int N, int r, int p, long nanos) {
+                events.add(N + "," + r + "," + p);
+            }
+
+            public void checked(boolean matched) {
+                events.add(String.valueOf(matched));
+            }
+        };
+
+        SCryptMetrics.addListener(listener);
+        try {
+            String hashed = SCryptUtil.scrypt("secret", 16, 2, 1);
+            assertTrue(SCryptUtil.check("secret", hashed));
+            assertFalse(SCryptUtil.check("s3cr3t", hashed));
+        } finally {
+            SCryptMetrics.removeListener(listener);
+        }
+
+        assertEquals("[16,2,1, 16,2,1, true, 16,2,1, false]", events.toString());
+    }
+
+    @Test
+    public void failing_listener() throws Exception {
+        final List<String> events = new ArrayList<String>();
+        SCryptListener failing = new SCryptListener() {
+            public void hashed(String backend, int N, int r, int p, long nanos) {
+                throw new IllegalStateException();
+            }
+
+            public void checked(boolean matched) {
+                throw new IllegalStateException();
+            }
+        };
+        SCryptListener listener = new SCryptListener() {
+            public void hashed(String backend, int N, int r, int p, long nanos) {
+                events.add(N + "," + r + "," + p);
+            }
+
+            public void checked(boolean matched) {
+                events.add(String.valueOf(matched));
+            }
+        };
+
+        SCryptMetrics.addListener(failing);
+        SCryptMetrics.addListener(listener);
+        try {
+            String hashed = SCryptUtil.scrypt("secret", 16, 2, 1);
+            assertTrue(SCryptUtil.check("secret", hashed));
+        } finally {
+            SCryptMetrics.removeListener(failing);
+            SCryptMetrics.removeListener(listener);
+        }
+
+        assertEquals("[16,2,1, 16,2,1, true]", events.toString());
+    }
+
+    @Test
+    public void failed() throws Exception {
+        SCryptMetrics metrics = SCryptMetrics.metrics();
+        long hashes = metrics.getNativeHashCount() + metrics.getJavaHashCount();
+
+        try {
+            SCrypt.scrypt(new byte[0], new byte[0], 1023, 8, 1, 32);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+
+        assertEquals(hashes, metrics.getNativeHashCount() + metrics.getJavaHashCount());
+        assertEquals(0, metrics.getActiveHashes());
+        assertEquals(0, metrics.getLiveBytes());
+    }
+
+    @Test
+    public void register() throws Exception {
+        SCrypt.preload();
+        SCryptMetrics.register();
+        SCryptMetrics.register();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(SCryptMetrics.OBJECT_NAME);
+        assertEquals(SCrypt.nativeKernel() != null, server.getAttribute(name, "NativeLibraryLoaded"));
+        assertNotNull(server.getAttribute(name, "LatencyHistograms"));
+    }
+}
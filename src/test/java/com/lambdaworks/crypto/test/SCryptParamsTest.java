@@ -0,0 +1,58 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.test;
+
+import com.lambdaworks.crypto.SCrypt;
+import com.lambdaworks.crypto.SCryptBackend;
+import com.lambdaworks.crypto.SCryptExecutor;
+import com.lambdaworks.crypto.SCryptParams;
+import com.lambdaworks.crypto.SCryptUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SCryptParamsTest {
+    @Test
+    public void calibrate() throws Exception {
+        long memory = 64 * 1024 * 1024;
+        SCryptParams params = SCryptParams.calibrate(50, memory, 2);
+
+        assertFalse(SCrypt.backend().reason() == SCryptBackend.Reason.PENDING);
+        assertEquals(8, params.r);
+        assertTrue(params.N >= 1024);
+        assertTrue(params.p >= 1);
+        assertTrue(2 * SCryptExecutor.memory(params.N, params.r, params.p) <= memory);
+
+        assertSame(params, SCryptParams.calibrate(50, memory, 2));
+
+        String hashed = SCryptUtil.scrypt("secret", params);
+        assertTrue(SCryptUtil.check("secret", hashed));
+    }
+
+    @Test
+    public void calibrateMemory() throws Exception {
+        SCryptParams params = SCryptParams.calibrate(1000, 2 * 1024 * 1024, 1);
+        assertTrue(params.N <= 1024 * 1024 * 2 / 128 / 8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void calibrateTooLittleMemory() throws Exception {
+        SCryptParams.calibrate(100, 1024 * 1024, 16);
+    }
+
+    @Test
+    public void weaker() throws Exception {
+        SCryptParams params = new SCryptParams(16384, 8, 1);
+        assertTrue(new SCryptParams(8192, 8, 1).isWeakerThan(params));
+        assertTrue(new SCryptParams(16384, 8, 1).isWeakerThan(new SCryptParams(16384, 8, 2)));
+        assertFalse(params.isWeakerThan(new SCryptParams(16384, 8, 1)));
+        assertFalse(new SCryptParams(32768, 8, 1).isWeakerThan(params));
+        assertEquals(params, new SCryptParams(16384, 8, 1));
+        assertEquals("N=16384,r=8,p=1", params.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidN() throws Exception {
+        new SCryptParams(1000, 8, 1);
+    }
+}
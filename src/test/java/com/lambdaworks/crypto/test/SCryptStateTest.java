@@ -0,0 +1,77 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.test;
+
+import com.lambdaworks.crypto.SCrypt;
+import com.lambdaworks.crypto.SCryptState;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+import static com.lambdaworks.crypto.test.CryptoTestUtil.*;
+
+public class SCryptStateTest {
+    byte[] P = "password".getBytes();
+    byte[] S = "NaCl".getBytes();
+    String DK = "fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b3731622eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640";
+
+    @Test
+    public void steps() throws Exception {
+        for (int iterations : new int[] { 1, 2, 333, 2048, 1000000 }) {
+            SCryptState state = new SCryptState(P, S, 1024, 8, 16, 64);
+            int steps = 0;
+
+            while (!state.step(iterations)) {
+                assertFalse(state.isDone());
+                steps++;
+            }
+
+            assertTrue(state.isDone());
+            assertEquals(2L * 1024 * 16, state.progress());
+            assertEquals((2 * 1024 * 16 - 1) / Math.max(2, iterations + (iterations & 1)), steps);
+            assertArrayEquals(decode(DK), state.key());
+        }
+    }
+
+    @Test
+    public void step_max_iterations() throws Exception {
+        SCryptState state = new SCryptState(P, S, 1024, 8, 16, 64);
+        assertTrue(state.step(Integer.MAX_VALUE));
+        assertArrayEquals(decode(DK), state.key());
+    }
+
+    @Test
+    public void finish() throws Exception {
+        SCryptState state = new SCryptState(P, S, 1024, 8, 16, 64);
+        assertArrayEquals(decode(DK), state.finish(1000));
+        assertArrayEquals(SCrypt.scryptJ(P, S, 16, 1, 3, 20), new SCryptState(P, S, 16, 1, 3, 20).finish(7));
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancel() throws Exception {
+        SCryptState state = new SCryptState(P, S, 1024, 8, 16, 64);
+        state.step(100);
+        state.cancel();
+        assertTrue(state.isCancelled());
+        state.step(100);
+    }
+
+    @Test
+    public void interrupt() throws Exception {
+        SCryptState state = new SCryptState(P, S, 1024, 8, 16, 64);
+        Thread.currentThread().interrupt();
+        try {
+            state.finish(100);
+            fail("interrupted");
+        } catch (InterruptedException e) {
+            assertTrue(state.isCancelled());
+            assertTrue(state.progress() < 2L * 1024 * 16);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void incomplete() throws Exception {
+        new SCryptState(P, S, 1024, 8, 1, 64).key();
+    }
+}
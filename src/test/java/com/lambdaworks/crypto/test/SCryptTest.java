@@ -5,6 +5,14 @@ package com.lambdaworks.crypto.test;
 import com.lambdaworks.crypto.SCrypt;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.*;
 import static com.lambdaworks.crypto.test.CryptoTestUtil.*;
 import static com.lambdaworks.crypto.SCrypt.*;
@@ -49,6 +57,241 @@ public class SCryptTest {
         assertArrayEquals(decode(DK), SCrypt.scrypt(P, S, N, r, p, dkLen));
     }
 
+    @Test
+    public void native_kernel() throws Exception {
+        boolean loaded = SCrypt.preload();
+        String kernel = SCrypt.nativeKernel();
+        assertEquals(loaded, kernel != null);
+        if (kernel != null) {
+            assertTrue(Arrays.asList("scalar", "sse2", "neon").contains(kernel));
+        }
+    }
+
+    @Test
+    public void scrypt_into_array() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "NaCl".getBytes("UTF-8");
+        String DK = "fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b3731622eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640";
+
+        byte[] key = new byte[64];
+        SCrypt.scrypt(P, S, 1024, 8, 16, key, 64);
+        assertArrayEquals(decode(DK), key);
+    }
+
+    @Test
+    public void scrypt_into_array_negative_length() throws Exception {
+        try {
+            SCrypt.scrypt(new byte[100], new byte[100], 16, 1, 1, new byte[0], -201);
+            fail("Negative key length");
+        } catch (NegativeArraySizeException e) {
+            // expected
+        }
+
+        if (!SCrypt.preload()) return;
+
+        try {
+            SCrypt.scryptN(new byte[100], new byte[100], 16, 1, 1, new byte[0], -201);
+            fail("Negative key length");
+        } catch (NegativeArraySizeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void scrypt_into_buffer() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "NaCl".getBytes("UTF-8");
+        String DK = "fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b3731622eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640";
+
+        for (boolean direct : new boolean[] { true, false }) {
+            ByteBuffer passwd = allocate(P.length + 3, direct);
+            ByteBuffer salt   = allocate(S.length, direct);
+            ByteBuffer key    = allocate(64 + 5, direct);
+
+            passwd.position(3);
+            passwd.duplicate().put(P);
+            salt.duplicate().put(S);
+            key.position(5);
+
+            SCrypt.scrypt(passwd, salt, 1024, 8, 16, key);
+
+            assertEquals(3, passwd.position());
+            assertEquals(5, key.position());
+
+            byte[] out = new byte[64];
+            key.get(out);
+            assertArrayEquals(decode(DK), out);
+        }
+    }
+
+    private static ByteBuffer allocate(int capacity, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    @Test
+    public void scrypt_parallel() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "NaCl".getBytes("UTF-8");
+        String DK = "fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b3731622eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640";
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertArrayEquals(decode(DK), SCrypt.scrypt(P, S, 1024, 8, 16, 64, executor));
+            assertArrayEquals(decode(DK), scryptJ(P, S, 1024, 8, 16, 64, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void scrypt_parallel_executor_use() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "NaCl".getBytes("UTF-8");
+        final AtomicInteger lanes = new AtomicInteger();
+
+        Executor counting = new Executor() {
+            public void execute(Runnable command) {
+                lanes.incrementAndGet();
+                command.run();
+            }
+        };
+
+        // the pure Java implementation runs every lane but the first on the executor,
+        // the native implementation uses its own threads
+        assertArrayEquals(scryptJ(P, S, 16, 1, 4, 32), scryptJ(P, S, 16, 1, 4, 32, counting));
+        assertEquals(3, lanes.getAndSet(0));
+
+        boolean loaded = SCrypt.preload();
+        assertArrayEquals(scryptJ(P, S, 16, 1, 4, 32), SCrypt.scrypt(P, S, 16, 1, 4, 32, counting));
+        assertEquals(loaded ? 0 : 3, lanes.get());
+    }
+
+    @Test
+    public void scrypt_batch() throws Exception {
+        byte[][] P = { "password".getBytes("UTF-8"), "pleaseletmein".getBytes("UTF-8") };
+        byte[][] S = { "NaCl".getBytes("UTF-8"), "SodiumChloride".getBytes("UTF-8") };
+        String DK = "fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b3731622eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640";
+
+        byte[][] keys = scryptBatch(P, S, 1024, 8, 16, 64);
+
+        assertEquals(2, keys.length);
+        assertArrayEquals(decode(DK), keys[0]);
+        assertArrayEquals(scryptJ(P[1], S[1], 1024, 8, 16, 64), keys[1]);
+    }
+
+    @Test
+    public void scrypt_batch_interleaved() throws Exception {
+        int count = 11;
+        byte[][] P = new byte[count][];
+        byte[][] S = new byte[count][];
+
+        for (int i = 0; i < count; i++) {
+            P[i] = ("password" + i).getBytes("UTF-8");
+            S[i] = ("salt" + i).getBytes("UTF-8");
+        }
+
+        byte[][] keys = scryptBatch(P, S, 1024, 2, 2, 32);
+
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals(scryptJ(P[i], S[i], 1024, 2, 2, 32), keys[i]);
+        }
+    }
+
+    @Test
+    public void scrypt_batch_invalid() throws Exception {
+        byte[][] P = new byte[3][4];
+        byte[][] S = new byte[2][4];
+
+        try {
+            scryptBatch(P, S, 16, 1, 1, 32);
+            fail("Number of salts and passwords differ");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            scryptBatch(P, new byte[3][4], 16, 1, 1, -1);
+            fail("Negative key length");
+        } catch (NegativeArraySizeException e) {
+            // expected
+        }
+
+        try {
+            scryptBatch(new byte[65536][], new byte[65536][], 16, 1, 1, 65536);
+            fail("Batch is too large");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        if (!SCrypt.preload()) return;
+
+        try {
+            scryptBatchN(P, S, 16, 1, 1, new byte[96], 32);
+            fail("Number of salts and passwords differ");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            scryptBatchN(P, new byte[3][4], 16, 1, 1, new byte[96], -1);
+            fail("Negative key length");
+        } catch (NegativeArraySizeException e) {
+            // expected
+        }
+
+        try {
+            scryptBatchN(P, new byte[3][4], 16, 1, 1, new byte[95], 32);
+            fail("Derived key array is too small");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            scryptBatchN(new byte[65536][], new byte[65536][], 16, 1, 1, new byte[0], 65536);
+            fail("Derived key array is too small");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            scryptBatchN(new byte[][] { new byte[1], null }, new byte[2][1], 16, 1, 1, new byte[64], 32);
+            fail("Null password");
+        } catch (NullPointerException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void smix_words() throws Exception {
+        int N = 16;
+        int r = 2;
+
+        byte[] B = new byte[128 * r];
+        new Random(0).nextBytes(B);
+
+        int[] B32 = new int[32 * r];
+        le32dec(B, 0, B32, 0, 32 * r);
+
+        smix(B, 0, r, N, new byte[128 * r * N], new byte[256 * r]);
+        smix(B32, 0, r, N, new int[32 * r * N], new int[64 * r + 16]);
+
+        byte[] B1 = new byte[128 * r];
+        le32enc(B32, 0, B1, 0, 32 * r);
+
+        assertArrayEquals(B, B1);
+    }
+
+    @Test
+    public void release_arena() throws Exception {
+        byte[] P = "password".getBytes("UTF-8");
+        byte[] S = "NaCl".getBytes("UTF-8");
+
+        byte[] DK = scrypt(P, S, 1024, 8, 16, 64);
+        SCrypt.releaseArena();
+        SCrypt.releaseArena();
+        assertArrayEquals(DK, scrypt(P, S, 1024, 8, 16, 64));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void scrypt_invalid_N_zero() throws Exception {
         byte[] P = "pleaseletmein".getBytes("UTF-8");
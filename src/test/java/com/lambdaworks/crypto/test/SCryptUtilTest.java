@@ -3,9 +3,15 @@
 package com.lambdaworks.crypto.test;
 
 import com.lambdaworks.codec.Base64;
+import com.lambdaworks.crypto.SCrypt;
+import com.lambdaworks.crypto.SaltGenerator;
+import com.lambdaworks.crypto.SCryptParams;
 import com.lambdaworks.crypto.SCryptUtil;
 import org.junit.Assert;
 import org.junit.Test;
+
+import java.util.Arrays;
+
 import static org.junit.Assert.*;
 
 public class SCryptUtilTest {
@@ -40,6 +46,76 @@ public class SCryptUtilTest {
         assertFalse(SCryptUtil.check("s3cr3t", hashed));
     }
 
+    @Test
+    public void checkSaltLengths() throws Exception {
+        for (int len : new int[] { 0, 1, 8, 20, 32 }) {
+            byte[] salt = new byte[len];
+            for (int i = 0; i < len; i++) salt[i] = (byte) (i * 31 + 7);
+            byte[] key = SCrypt.scrypt(passwd.getBytes("UTF-8"), salt, 1024, 8, 1, 32);
+
+            for (boolean padded : new boolean[] { true, false }) {
+                String hashed = "$s0$a0801$" + new String(Base64.encode(salt, padded)) + "$" + new String(Base64.encode(key, padded));
+                assertTrue(hashed, SCryptUtil.check(passwd, hashed));
+                assertFalse(hashed, SCryptUtil.check("s3cr3t", hashed));
+            }
+        }
+    }
+
+    @Test
+    public void checkKeyLengths() throws Exception {
+        byte[] salt = new byte[16];
+        byte[] key = SCrypt.scrypt(passwd.getBytes("UTF-8"), salt, 1024, 8, 1, 64);
+
+        for (int len : new int[] { 0, 16, 31, 33, 64 }) {
+            String hashed = "$s0$a0801$" + new String(Base64.encode(salt)) + "$" + new String(Base64.encode(Arrays.copyOf(key, len)));
+            assertFalse(hashed, SCryptUtil.check(passwd, hashed));
+        }
+    }
+
+    @Test
+    public void checkAndUpgrade() {
+        SCryptParams policy = new SCryptParams(2048, 8, 1);
+        String hashed = SCryptUtil.scrypt(passwd, 1024, 8, 2);
+
+        assertNull(SCryptUtil.checkAndUpgrade("s3cr3t", hashed, policy));
+
+        String upgraded = SCryptUtil.checkAndUpgrade(passwd, hashed, policy);
+        assertFalse(hashed.equals(upgraded));
+        assertTrue(SCryptUtil.check(passwd, upgraded));
+        assertEquals("b0802", upgraded.split("\\$")[2]);
+
+        assertSame(upgraded, SCryptUtil.checkAndUpgrade(passwd, upgraded, policy));
+    }
+
+    @Test
+    public void scryptBatch() {
+        String[] passwds = { "secret", "s3cr3t", "" };
+        String[] hashed = SCryptUtil.scryptBatch(passwds, 1024, 8, 1);
+
+        assertEquals(passwds.length, hashed.length);
+        for (int i = 0; i < passwds.length; i++) {
+            assertTrue(SCryptUtil.check(passwds[i], hashed[i]));
+        }
+        assertFalse(hashed[0].split("\\$")[3].equals(hashed[1].split("\\$")[3]));
+    }
+
+    @Test
+    public void saltGenerator() {
+        SaltGenerator previous = SCryptUtil.saltGenerator();
+        try {
+            SCryptUtil.saltGenerator(new SaltGenerator() {
+                public void nextBytes(byte[] dst, int off, int len) {
+                    for (int i = off; i < off + len; i++) dst[i] = 1;
+                }
+            });
+            String hashed = SCryptUtil.scrypt(passwd, 1024, 8, 1);
+            assertEquals("AQEBAQEBAQEBAQEBAQEBAQ==", hashed.split("\\$")[3]);
+            assertTrue(SCryptUtil.check(passwd, hashed));
+        } finally {
+            SCryptUtil.saltGenerator(previous);
+        }
+    }
+
     @Test
     public void format_0_rp_max() throws Exception {
         int N = 2;
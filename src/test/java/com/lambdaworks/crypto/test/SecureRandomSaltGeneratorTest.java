@@ -0,0 +1,46 @@
+// Copyright (C) 2026 - agent.  All rights reserved.
+
+package com.lambdaworks.crypto.test;
+
+import com.lambdaworks.crypto.SecureRandomSaltGenerator;
+import org.junit.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SecureRandomSaltGeneratorTest {
+    @Test
+    public void unique() throws Exception {
+        SecureRandomSaltGenerator generator = new SecureRandomSaltGenerator("SHA1PRNG", 3);
+        Set<String> salts = new HashSet<String>();
+
+        for (int i = 0; i < 1000; i++) {
+            byte[] salt = new byte[16];
+            generator.nextBytes(salt, 0, salt.length);
+            assertTrue(salts.add(Arrays.toString(salt)));
+        }
+    }
+
+    @Test
+    public void range() throws Exception {
+        SecureRandomSaltGenerator generator = new SecureRandomSaltGenerator("SHA1PRNG");
+        byte[] dst = new byte[4096];
+
+        generator.nextBytes(dst, 1, dst.length - 2);
+        assertEquals(0, dst[0]);
+        assertEquals(0, dst[dst.length - 1]);
+
+        int zeros = 0;
+        for (byte b : dst) if (b == 0) zeros++;
+        assertTrue(zeros < 64);
+    }
+
+    @Test(expected = NoSuchAlgorithmException.class)
+    public void unknownAlgorithm() throws Exception {
+        new SecureRandomSaltGenerator("NoSuchPRNG");
+    }
+}
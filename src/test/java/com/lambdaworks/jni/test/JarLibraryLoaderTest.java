@@ -3,8 +3,12 @@
 package com.lambdaworks.jni.test;
 
 import com.lambdaworks.jni.JarLibraryLoader;
+import com.lambdaworks.jni.UnsupportedPlatformException;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.net.URL;
 import java.security.CodeSigner;
@@ -13,7 +17,9 @@ import java.security.cert.CertPath;
 import java.security.cert.CertificateFactory;
 
 import static java.lang.System.getProperty;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class JarLibraryLoaderTest extends AbstractPlatformDetectionTest {
@@ -21,6 +27,7 @@ public class JarLibraryLoaderTest extends AbstractPlatformDetectionTest {
     public void loadSigned() throws Exception {
         JarLibraryLoader loader = jarLibraryLoader("native-libs-signed");
         assertTrue(loader.load("scrypt", true));
+        assertNull(loader.failure());
     }
 
     @Test
@@ -28,6 +35,42 @@ public class JarLibraryLoaderTest extends AbstractPlatformDetectionTest {
         JarLibraryLoader loader = jarLibraryLoader("native-libs-unsigned");
         assertTrue(loader.load("scrypt", false));
     }
+    @Test
+    public void loadCached() throws Exception {
+        File dir = new File(getProperty("java.io.tmpdir"), "scrypt-cache-" + System.nanoTime());
+        try {
+            URL url = getClass().getResource("/native-libs-signed.jar");
+            JarLibraryLoader loader = new JarLibraryLoader(new CodeSource(url, codeSigners()), "lib", dir);
+            assertTrue(loader.load("scrypt", true));
+
+            File[] files = dir.listFiles();
+            assertEquals(1, files.length);
+            assertFalse(files[0].canWrite() && !isRoot());
+            long modified = files[0].lastModified();
+
+            loader = new JarLibraryLoader(new CodeSource(url, codeSigners()), "lib", dir);
+            assertTrue(loader.load("scrypt", true));
+            assertEquals(1, dir.listFiles().length);
+            assertEquals(modified, files[0].lastModified());
+
+            assertTrue(loader.load("scrypt", false));
+            assertEquals(2, dir.listFiles().length);
+
+            url = getClass().getResource("/native-libs-unsigned.jar");
+            loader = new JarLibraryLoader(new CodeSource(url, codeSigners()), "lib", dir);
+            assertTrue(loader.load("scrypt", false));
+            assertEquals(3, dir.listFiles().length);
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) for (File file : files) file.delete();
+            dir.delete();
+        }
+    }
+
+    private static boolean isRoot() {
+        return "root".equals(getProperty("user.name"));
+    }
+
     @Test
     public void loadVerifyBadSig() throws Exception {
         JarLibraryLoader loader = jarLibraryLoader("native-libs-badsig");
@@ -39,6 +82,7 @@ public class JarLibraryLoaderTest extends AbstractPlatformDetectionTest {
         setPlatform("PA-RISC", "MPE/iX");
         JarLibraryLoader loader = jarLibraryLoader("native-libs-signed");
         assertFalse(loader.load("scrypt", true));
+        assertTrue(loader.failure() instanceof UnsupportedPlatformException);
     }
 
     @Test
@@ -49,6 +93,19 @@ public class JarLibraryLoaderTest extends AbstractPlatformDetectionTest {
         assertFalse(loader.load("scrypt", true));
     }
 
+    @Test
+    public void loadMuslWithoutLibrary() throws Exception {
+        setPlatform("x86_64", "Linux");
+        System.setProperty("com.lambdaworks.jni.libc", "musl");
+        try {
+            JarLibraryLoader loader = jarLibraryLoader("native-libs-unsigned");
+            assertFalse(loader.load("scrypt", false));
+            assertTrue(loader.failure() instanceof FileNotFoundException);
+        } finally {
+            System.clearProperty("com.lambdaworks.jni.libc");
+        }
+    }
+
     @Test
     public void loadInvalidEntry() throws Exception {
         JarLibraryLoader loader = jarLibraryLoader("native-libs-invalid");
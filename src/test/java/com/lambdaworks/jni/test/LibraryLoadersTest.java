@@ -6,6 +6,7 @@ import com.lambdaworks.jni.*;
 import org.junit.*;
 
 import static java.lang.System.*;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class LibraryLoadersTest {
@@ -35,6 +36,20 @@ public class LibraryLoadersTest {
         assertTrue(loaderForName("sys") instanceof SysLibraryLoader);
     }
 
+    @Test
+    public void reportingLoaders() throws Exception {
+        for (String name : new String[] { "jar", "nil", "sys" }) {
+            assertTrue(loaderForName(name) instanceof ReportingLibraryLoader);
+        }
+
+        LibraryLoader custom = new LibraryLoader() {
+            public boolean load(String name, boolean verify) {
+                return false;
+            }
+        };
+        assertFalse(custom instanceof ReportingLibraryLoader);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void invalidLoaderProperty() throws Exception {
         loaderForName("invalid");
@@ -6,7 +6,13 @@ import com.lambdaworks.jni.Platform;
 import com.lambdaworks.jni.UnsupportedPlatformException;
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class PlatformTest extends AbstractPlatformDetectionTest {
     @Test
@@ -14,6 +20,40 @@ public class PlatformTest extends AbstractPlatformDetectionTest {
         assertEquals(Platform.Arch.x86_64, detectArch("x86_64").arch);
         assertEquals(Platform.Arch.x86_64, detectArch("amd64").arch);
         assertEquals(Platform.Arch.x86,    detectArch("i386").arch);
+        assertEquals(Platform.Arch.aarch64, detectArch("aarch64").arch);
+        assertEquals(Platform.Arch.aarch64, detectArch("arm64").arch);
+    }
+
+    @Test
+    public void libc() throws Exception {
+        try {
+            System.setProperty("com.lambdaworks.jni.libc", "musl");
+            assertEquals(Platform.Libc.musl, detectOs("Linux").libc);
+            assertNull(detectOs("Darwin").libc);
+            System.setProperty("com.lambdaworks.jni.libc", "glibc");
+            assertEquals(Platform.Libc.glibc, detectOs("Linux").libc);
+        } finally {
+            System.clearProperty("com.lambdaworks.jni.libc");
+        }
+
+        assertNotNull(detectOs("Linux").libc);
+    }
+
+    @Test
+    public void libcOfProcess() throws Exception {
+        File maps = new File("/proc/self/maps");
+        if (!maps.canRead()) return;
+
+        boolean musl = false;
+        BufferedReader reader = new BufferedReader(new FileReader(maps));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) musl |= line.contains("/ld-musl-");
+        } finally {
+            reader.close();
+        }
+
+        assertEquals(musl ? Platform.Libc.musl : Platform.Libc.glibc, detectOs("Linux").libc);
     }
 
     @Test